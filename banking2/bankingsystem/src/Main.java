@@ -1,7 +1,10 @@
+import dao.TransactionDao;
 import db.DatabaseInitializer;
 import javafx.application.Application;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
@@ -11,14 +14,26 @@ import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import model.Account;
 import model.BankTransaction;
+import model.TransactionCursor;
+import model.TransactionPage;
 import model.User;
 import service.AuthService;
 import service.BankingService;
+import service.RSAKeyRing;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class Main extends Application {
 
@@ -39,11 +54,47 @@ public class Main extends Application {
     private ComboBox<String> transferToCombo;
     private ComboBox<String> transactionsAccountCombo;
     private ListView<String> transactionsListView;
+    private ProgressIndicator dashboardBusyIndicator;
+    private ProgressIndicator transactionsBusyIndicator;
+    private Button loadOlderTransactionsButton;
+    private int transactionsAccountId;
+    private TransactionCursor transactionsNextCursor;
+
+    private static final int HISTORY_PAGE_SIZE = 100;
+
+    // All JDBC and RSA work runs here so the JavaFX Application Thread never blocks
+    private final ExecutorService backgroundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private Task<?> refreshTask;
+    private Task<?> transactionsTask;
+
+    /**
+     * Result of a user action: shown in the pane's message label in green or red.
+     */
+    private record Outcome(boolean success, String message) {
+    }
+
+    /**
+     * Data shown on every dashboard tab, loaded in one background task.
+     */
+    private record DashboardData(List<Account> accounts, List<String> allAccountNumbers) {
+    }
+
+    /**
+     * One formatted page of transaction history.
+     */
+    private record HistoryPage(int accountId, List<String> lines, TransactionCursor nextCursor) {
+    }
 
     public static void main(String[] args) {
         // Initialize DB schema before launching UI
         try {
             DatabaseInitializer.initialize();
+            // Load (or, on first boot, generate) the RSA keys while the UI starts;
+            // the first transfer only waits if it arrives before they are ready
+            CompletableFuture<Void> keysLoaded = RSAKeyRing.getInstance().warmUp();
+            keysLoaded.thenRun(Main::resumeKeyRotation);
+            // Les migrations de données ont besoin des clés : en tâche de fond, jamais sur le thread principal
+            keysLoaded.thenRunAsync(Main::migrateLedger);
         } catch (SQLException e) {
             e.printStackTrace();
             System.err.println("Failed to initialize database: " + e.getMessage());
@@ -51,6 +102,32 @@ public class Main extends Application {
         launch(args);
     }
 
+    /**
+     * Encrypt rows still stored in clear and index rows without blind indexes.
+     * Both record their completion in data_migrations: once finished, each is a
+     * single checkpoint lookup instead of a table scan.
+     */
+    private static void migrateLedger() {
+        try {
+            TransactionDao transactionDao = new TransactionDao();
+            transactionDao.encryptLegacyRows();
+            transactionDao.backfillBlindIndexes();
+        } catch (SQLException e) {
+            System.err.println("Failed to migrate transactions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finish re-encrypting under the newest key if a rotation was interrupted.
+     */
+    private static void resumeKeyRotation() {
+        try {
+            new BankingService().resumeKeyRotation();
+        } catch (SQLException e) {
+            System.err.println("Failed to resume key rotation: " + e.getMessage());
+        }
+    }
+
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
@@ -61,6 +138,54 @@ public class Main extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        backgroundExecutor.shutdownNow();
+    }
+
+    /**
+     * Run blocking work (JDBC, RSA) on a background worker. The callbacks run back
+     * on the JavaFX Application Thread; the busy indicator, if any, is visible
+     * while the task runs.
+     */
+    private <T> Task<T> runInBackground(Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure, Node busyIndicator) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        if (busyIndicator != null) {
+            busyIndicator.visibleProperty().bind(task.runningProperty());
+        }
+        task.setOnSucceeded(e -> onSuccess.accept(task.getValue()));
+        task.setOnFailed(e -> {
+            Throwable ex = task.getException();
+            ex.printStackTrace();
+            onFailure.accept(ex);
+        });
+        backgroundExecutor.execute(task);
+        return task;
+    }
+
+    private static ProgressIndicator createBusyIndicator() {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setPrefSize(20, 20);
+        indicator.setMaxSize(20, 20);
+        indicator.setVisible(false);
+        return indicator;
+    }
+
+    private static void showOutcome(Label messageLabel, Outcome outcome) {
+        messageLabel.setText(outcome.message());
+        messageLabel.setTextFill(outcome.success() ? Color.GREEN : Color.RED);
+    }
+
+    private static void showError(Label messageLabel, Throwable ex) {
+        messageLabel.setText("Error: " + ex.getMessage());
+        messageLabel.setTextFill(Color.RED);
+    }
+
     private Scene createAuthScene() {
         TabPane tabPane = new TabPane();
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
@@ -149,19 +274,23 @@ public class Main extends Application {
 
         Label messageLabel = new Label();
         messageLabel.setFont(Font.font(12));
+        ProgressIndicator busyIndicator = createBusyIndicator();
 
         grid.add(userLabel, 0, 0);
         grid.add(userField, 1, 0);
         grid.add(pwdLabel, 0, 1);
         grid.add(pwdField, 1, 1);
         grid.add(loginButton, 1, 2);
+        grid.add(busyIndicator, 2, 2);
         grid.add(messageLabel, 1, 3);
 
         loginButton.setOnAction(e -> {
             String username = userField.getText();
             String password = pwdField.getText();
-            try {
-                User user = authService.login(username, password);
+            loginButton.setDisable(true);
+            messageLabel.setText("");
+            runInBackground(() -> authService.login(username, password), user -> {
+                loginButton.setDisable(false);
                 if (user == null) {
                     messageLabel.setText("Invalid credentials");
                     messageLabel.setTextFill(Color.RED);
@@ -189,11 +318,10 @@ public class Main extends Application {
                         primaryStage.setY(y);
                     }
                 }
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                messageLabel.setText("Error: " + ex.getMessage());
-                messageLabel.setTextFill(Color.RED);
-            }
+            }, ex -> {
+                loginButton.setDisable(false);
+                showError(messageLabel, ex);
+            }, busyIndicator);
         });
 
         vbox.getChildren().addAll(titleLabel, grid);
@@ -257,6 +385,7 @@ public class Main extends Application {
 
         Label messageLabel = new Label();
         messageLabel.setFont(Font.font(12));
+        ProgressIndicator busyIndicator = createBusyIndicator();
 
         grid.add(userLabel, 0, 0);
         grid.add(userField, 1, 0);
@@ -268,6 +397,7 @@ public class Main extends Application {
         grid.add(auxIdField, 1, 3);
         grid.add(auxIdHint, 1, 4);
         grid.add(registerButton, 1, 5);
+        grid.add(busyIndicator, 2, 5);
         grid.add(messageLabel, 1, 6);
 
         registerButton.setOnAction(e -> {
@@ -275,47 +405,45 @@ public class Main extends Application {
             String password = pwdField.getText();
             String pin = pinField.getText();
             String auxId = auxIdField.getText().trim();
-            try {
+            registerButton.setDisable(true);
+            messageLabel.setText("");
+            runInBackground(() -> {
                 User user;
                 if (auxId.isEmpty()) {
                     // Create new user with new account
                     user = authService.register(username, password, pin);
                     // Also create a default account for the new user
                     bankingService.createDefaultAccountForUser(user.getId());
-                    messageLabel.setText("Registration successful! Your User ID: " + user.getUserId() + ". You can now log in.");
-                    messageLabel.setTextFill(Color.GREEN);
-                } else {
-                    // Link to existing user - verify password and PIN before creating account
-                    try {
-                        // Verify password and PIN before creating account
-                        Account newAccount = bankingService.createAccountForUserIdWithAuth(auxId, password, pin);
-                        messageLabel.setText("Account created successfully! Account: " + newAccount.getAccountNumber() + 
-                            ". Please log in with your existing username.");
-                        messageLabel.setTextFill(Color.GREEN);
-                    } catch (IllegalArgumentException iae) {
-                        // User ID not found or authentication failed
-                        if (iae.getMessage().contains("User ID not found")) {
-                            // User ID not found, create new user with this ID
-                            user = authService.register(username, password, pin, auxId);
-                            bankingService.createDefaultAccountForUser(user.getId());
-                            messageLabel.setText("Registration successful! Your User ID: " + user.getUserId() + ". You can now log in.");
-                            messageLabel.setTextFill(Color.GREEN);
-                        } else {
-                            // Authentication failed (invalid password or PIN)
-                            messageLabel.setText("Error: " + iae.getMessage());
-                            messageLabel.setTextFill(Color.RED);
-                        }
+                    return new Outcome(true, "Registration successful! Your User ID: " + user.getUserId() + ". You can now log in.");
+                }
+                // Link to existing user - verify password and PIN before creating account
+                try {
+                    // Verify password and PIN before creating account
+                    Account newAccount = bankingService.createAccountForUserIdWithAuth(auxId, password, pin);
+                    return new Outcome(true, "Account created successfully! Account: " + newAccount.getAccountNumber() +
+                        ". Please log in with your existing username.");
+                } catch (IllegalArgumentException iae) {
+                    // User ID not found or authentication failed
+                    if (iae.getMessage().contains("User ID not found")) {
+                        // User ID not found, create new user with this ID
+                        user = authService.register(username, password, pin, auxId);
+                        bankingService.createDefaultAccountForUser(user.getId());
+                        return new Outcome(true, "Registration successful! Your User ID: " + user.getUserId() + ". You can now log in.");
                     }
+                    // Authentication failed (invalid password or PIN)
+                    return new Outcome(false, "Error: " + iae.getMessage());
                 }
+            }, outcome -> {
+                registerButton.setDisable(false);
+                showOutcome(messageLabel, outcome);
                 userField.clear();
                 pwdField.clear();
                 pinField.clear();
                 auxIdField.clear();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                messageLabel.setText("Error: " + ex.getMessage());
-                messageLabel.setTextFill(Color.RED);
-            }
+            }, ex -> {
+                registerButton.setDisable(false);
+                showError(messageLabel, ex);
+            }, busyIndicator);
         });
 
         vbox.getChildren().addAll(titleLabel, grid);
@@ -346,10 +474,13 @@ public class Main extends Application {
         logoutButton.setOnMouseEntered(e -> logoutButton.setStyle("-fx-background-color: #333333; -fx-text-fill: white; -fx-font-weight: bold;"));
         logoutButton.setOnMouseExited(e -> logoutButton.setStyle("-fx-background-color: #000000; -fx-text-fill: white; -fx-font-weight: bold;"));
 
+        dashboardBusyIndicator = createBusyIndicator();
+
         HBox.setHgrow(welcomeLabel, Priority.ALWAYS);
-        topBar.getChildren().addAll(welcomeLabel, userIdLabel, logoutButton);
+        topBar.getChildren().addAll(welcomeLabel, dashboardBusyIndicator, userIdLabel, logoutButton);
 
         logoutButton.setOnAction(e -> {
+            cancelPendingLoads();
             currentUser = null;
             selectedAccount = null;
             
@@ -407,6 +538,9 @@ public class Main extends Application {
         root.setTop(topBar);
         root.setCenter(mainTabs);
 
+        // Account lists and combo boxes are filled asynchronously
+        refreshAllUI();
+
         // Use the current window size if available, otherwise use default
         double sceneWidth = (primaryStage.getWidth() > 0 && !Double.isNaN(primaryStage.getWidth())) 
             ? primaryStage.getWidth() : 1000;
@@ -470,23 +604,25 @@ public class Main extends Application {
         
         Label messageLabel = new Label();
         messageLabel.setFont(Font.font(12));
+        ProgressIndicator busyIndicator = createBusyIndicator();
         
         createAccountButton.setOnAction(e -> {
-            try {
-                if (currentUser.getUserId() == null || currentUser.getUserId().isEmpty()) {
-                    messageLabel.setText("Error: No User ID found. Please register first.");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
-                }
-                Account newAccount = bankingService.createAccountForUserId(currentUser.getUserId());
+            if (currentUser.getUserId() == null || currentUser.getUserId().isEmpty()) {
+                messageLabel.setText("Error: No User ID found. Please register first.");
+                messageLabel.setTextFill(Color.RED);
+                return;
+            }
+            String userId = currentUser.getUserId();
+            createAccountButton.setDisable(true);
+            runInBackground(() -> bankingService.createAccountForUserId(userId), newAccount -> {
+                createAccountButton.setDisable(false);
                 messageLabel.setText("New account created: " + newAccount.getAccountNumber());
                 messageLabel.setTextFill(Color.GREEN);
                 refreshAllUI();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                messageLabel.setText("Error: " + ex.getMessage());
-                messageLabel.setTextFill(Color.RED);
-            }
+            }, ex -> {
+                createAccountButton.setDisable(false);
+                showError(messageLabel, ex);
+            }, busyIndicator);
         });
 
         Button refreshButton = new Button("Refresh");
@@ -498,12 +634,9 @@ public class Main extends Application {
             refreshAllUI();
         });
 
-        buttonBox.getChildren().addAll(createAccountButton, messageLabel);
+        buttonBox.getChildren().addAll(createAccountButton, busyIndicator, messageLabel);
         vbox.getChildren().addAll(titleLabel, buttonBox, accountsListView, allAccountsLabel, allAccountsListView, refreshButton);
 
-        reloadAccounts(accountsListView);
-        reloadAllAccounts(allAccountsListView);
-
         return vbox;
     }
 
@@ -546,53 +679,52 @@ public class Main extends Application {
 
         Label messageLabel = new Label();
         messageLabel.setFont(Font.font(12));
-
-        // Load accounts into combo box
-        loadAccountsIntoCombo(depositAccountCombo);
+        ProgressIndicator busyIndicator = createBusyIndicator();
 
         depositButton.setOnAction(e -> {
-            try {
-                String selected = depositAccountCombo.getValue();
-                if (selected == null) {
-                    messageLabel.setText("Please select an account");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
-                }
+            String selected = depositAccountCombo.getValue();
+            if (selected == null) {
+                messageLabel.setText("Please select an account");
+                messageLabel.setTextFill(Color.RED);
+                return;
+            }
 
-                String accountNumber = selected.split(" ")[0];
+            String accountNumber = selected.split(" ")[0];
+            String pin = pinField.getText();
+            String amountText = amountField.getText();
+            String description = descriptionField.getText().isEmpty() ? "Deposit" : descriptionField.getText();
+            User user = currentUser;
+            depositButton.setDisable(true);
+            runInBackground(() -> {
                 Account account = bankingService.getAccountByNumber(accountNumber);
                 if (account == null) {
-                    messageLabel.setText("Account not found");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
+                    return new Outcome(false, "Account not found");
                 }
 
-                if (!authService.verifyPin(currentUser, pinField.getText())) {
-                    messageLabel.setText("Invalid PIN");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
+                if (!authService.verifyPin(user, pin)) {
+                    return new Outcome(false, "Invalid PIN");
                 }
 
-                BigDecimal amount = new BigDecimal(amountField.getText());
-                String description = descriptionField.getText().isEmpty() ? "Deposit" : descriptionField.getText();
-
+                BigDecimal amount = new BigDecimal(amountText);
                 bankingService.deposit(account.getId(), amount, description);
-                messageLabel.setText("Deposit successful! New balance: " + 
+                return new Outcome(true, "Deposit successful! New balance: " +
                     bankingService.getAccountById(account.getId()).getBalance());
-                messageLabel.setTextFill(Color.GREEN);
-
-                amountField.clear();
-                descriptionField.clear();
-                pinField.clear();
-                refreshAllUI();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                messageLabel.setText("Error: " + ex.getMessage());
-                messageLabel.setTextFill(Color.RED);
-            }
+            }, outcome -> {
+                depositButton.setDisable(false);
+                showOutcome(messageLabel, outcome);
+                if (outcome.success()) {
+                    amountField.clear();
+                    descriptionField.clear();
+                    pinField.clear();
+                    refreshAllUI();
+                }
+            }, ex -> {
+                depositButton.setDisable(false);
+                showError(messageLabel, ex);
+            }, busyIndicator);
         });
 
-        vbox.getChildren().addAll(titleLabel, depositAccountCombo, amountField, descriptionField, pinField, depositButton, messageLabel);
+        vbox.getChildren().addAll(titleLabel, depositAccountCombo, amountField, descriptionField, pinField, depositButton, busyIndicator, messageLabel);
         return vbox;
     }
 
@@ -635,53 +767,52 @@ public class Main extends Application {
 
         Label messageLabel = new Label();
         messageLabel.setFont(Font.font(12));
-
-        // Load accounts into combo box
-        loadAccountsIntoCombo(withdrawAccountCombo);
+        ProgressIndicator busyIndicator = createBusyIndicator();
 
         withdrawButton.setOnAction(e -> {
-            try {
-                String selected = withdrawAccountCombo.getValue();
-                if (selected == null) {
-                    messageLabel.setText("Please select an account");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
-                }
+            String selected = withdrawAccountCombo.getValue();
+            if (selected == null) {
+                messageLabel.setText("Please select an account");
+                messageLabel.setTextFill(Color.RED);
+                return;
+            }
 
-                String accountNumber = selected.split(" ")[0];
+            String accountNumber = selected.split(" ")[0];
+            String pin = pinField.getText();
+            String amountText = amountField.getText();
+            String description = descriptionField.getText().isEmpty() ? "Withdrawal" : descriptionField.getText();
+            User user = currentUser;
+            withdrawButton.setDisable(true);
+            runInBackground(() -> {
                 Account account = bankingService.getAccountByNumber(accountNumber);
                 if (account == null) {
-                    messageLabel.setText("Account not found");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
+                    return new Outcome(false, "Account not found");
                 }
 
-                if (!authService.verifyPin(currentUser, pinField.getText())) {
-                    messageLabel.setText("Invalid PIN");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
+                if (!authService.verifyPin(user, pin)) {
+                    return new Outcome(false, "Invalid PIN");
                 }
 
-                BigDecimal amount = new BigDecimal(amountField.getText());
-                String description = descriptionField.getText().isEmpty() ? "Withdrawal" : descriptionField.getText();
-
+                BigDecimal amount = new BigDecimal(amountText);
                 bankingService.withdraw(account.getId(), amount, description);
-                messageLabel.setText("Withdrawal successful! New balance: " + 
+                return new Outcome(true, "Withdrawal successful! New balance: " +
                     bankingService.getAccountById(account.getId()).getBalance());
-                messageLabel.setTextFill(Color.GREEN);
-
-                amountField.clear();
-                descriptionField.clear();
-                pinField.clear();
-                refreshAllUI();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                messageLabel.setText("Error: " + ex.getMessage());
-                messageLabel.setTextFill(Color.RED);
-            }
+            }, outcome -> {
+                withdrawButton.setDisable(false);
+                showOutcome(messageLabel, outcome);
+                if (outcome.success()) {
+                    amountField.clear();
+                    descriptionField.clear();
+                    pinField.clear();
+                    refreshAllUI();
+                }
+            }, ex -> {
+                withdrawButton.setDisable(false);
+                showError(messageLabel, ex);
+            }, busyIndicator);
         });
 
-        vbox.getChildren().addAll(titleLabel, withdrawAccountCombo, amountField, descriptionField, pinField, withdrawButton, messageLabel);
+        vbox.getChildren().addAll(titleLabel, withdrawAccountCombo, amountField, descriptionField, pinField, withdrawButton, busyIndicator, messageLabel);
         return vbox;
     }
 
@@ -729,57 +860,55 @@ public class Main extends Application {
 
         Label messageLabel = new Label();
         messageLabel.setFont(Font.font(12));
-
-        // Load accounts
-        loadAccountsIntoCombo(transferFromCombo);
-        loadAllAccountsIntoCombo(transferToCombo);
+        ProgressIndicator busyIndicator = createBusyIndicator();
 
         transferButton.setOnAction(e -> {
-            try {
-                String fromSelected = transferFromCombo.getValue();
-                String toAccountNumber = transferToCombo.getValue();
-                
-                if (fromSelected == null || toAccountNumber == null) {
-                    messageLabel.setText("Please select both accounts");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
-                }
+            String fromSelected = transferFromCombo.getValue();
+            String toAccountNumber = transferToCombo.getValue();
 
-                String fromAccountNumber = fromSelected.split(" ")[0];
+            if (fromSelected == null || toAccountNumber == null) {
+                messageLabel.setText("Please select both accounts");
+                messageLabel.setTextFill(Color.RED);
+                return;
+            }
+
+            String fromAccountNumber = fromSelected.split(" ")[0];
+            String pin = pinField.getText();
+            String amountText = amountField.getText();
+            String description = descriptionField.getText().isEmpty() ? "Transfer" : descriptionField.getText();
+            User user = currentUser;
+            transferButton.setDisable(true);
+            runInBackground(() -> {
                 Account from = bankingService.getAccountByNumber(fromAccountNumber);
                 Account to = bankingService.getAccountByNumber(toAccountNumber);
 
                 if (from == null || to == null) {
-                    messageLabel.setText("Account not found");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
+                    return new Outcome(false, "Account not found");
                 }
 
-                if (!authService.verifyPin(currentUser, pinField.getText())) {
-                    messageLabel.setText("Invalid PIN");
-                    messageLabel.setTextFill(Color.RED);
-                    return;
+                if (!authService.verifyPin(user, pin)) {
+                    return new Outcome(false, "Invalid PIN");
                 }
 
-                BigDecimal amount = new BigDecimal(amountField.getText());
-                String description = descriptionField.getText().isEmpty() ? "Transfer" : descriptionField.getText();
-
+                BigDecimal amount = new BigDecimal(amountText);
                 bankingService.transfer(from.getId(), to.getId(), amount, description);
-                messageLabel.setText("Transfer successful!");
-                messageLabel.setTextFill(Color.GREEN);
-
-                amountField.clear();
-                descriptionField.clear();
-                pinField.clear();
-                refreshAllUI();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                messageLabel.setText("Error: " + ex.getMessage());
-                messageLabel.setTextFill(Color.RED);
-            }
+                return new Outcome(true, "Transfer successful!");
+            }, outcome -> {
+                transferButton.setDisable(false);
+                showOutcome(messageLabel, outcome);
+                if (outcome.success()) {
+                    amountField.clear();
+                    descriptionField.clear();
+                    pinField.clear();
+                    refreshAllUI();
+                }
+            }, ex -> {
+                transferButton.setDisable(false);
+                showError(messageLabel, ex);
+            }, busyIndicator);
         });
 
-        vbox.getChildren().addAll(titleLabel, transferFromCombo, transferToCombo, amountField, descriptionField, pinField, transferButton, messageLabel);
+        vbox.getChildren().addAll(titleLabel, transferFromCombo, transferToCombo, amountField, descriptionField, pinField, transferButton, busyIndicator, messageLabel);
         return vbox;
     }
 
@@ -806,22 +935,12 @@ public class Main extends Application {
         refreshButton.setOnMouseEntered(e -> refreshButton.setStyle("-fx-background-color: #1E90FF; -fx-text-fill: white; -fx-font-weight: bold;"));
         refreshButton.setOnMouseExited(e -> refreshButton.setStyle("-fx-background-color: #4169E1; -fx-text-fill: white; -fx-font-weight: bold;"));
 
-        // Load accounts
-        loadAccountsIntoCombo(transactionsAccountCombo);
+        transactionsBusyIndicator = createBusyIndicator();
 
         transactionsAccountCombo.setOnAction(e -> {
             String selected = transactionsAccountCombo.getValue();
             if (selected != null) {
-                String accountNumber = selected.split(" ")[0];
-                try {
-                    Account account = bankingService.getAccountByNumber(accountNumber);
-                    if (account != null) {
-                        reloadTransactions(account.getId(), transactionsListView);
-                    }
-                } catch (SQLException ex) {
-                    transactionsListView.getItems().clear();
-                    transactionsListView.getItems().add("Error: " + ex.getMessage());
-                }
+                reloadTransactions(selected.split(" ")[0]);
             }
         });
 
@@ -829,198 +948,255 @@ public class Main extends Application {
             refreshAllUI();
         });
 
-        vbox.getChildren().addAll(titleLabel, transactionsAccountCombo, transactionsListView, refreshButton);
+        loadOlderTransactionsButton = new Button("Load older");
+        loadOlderTransactionsButton.setStyle("-fx-background-color: #4169E1; -fx-text-fill: white; -fx-font-weight: bold;");
+        loadOlderTransactionsButton.setOnMouseEntered(e -> loadOlderTransactionsButton.setStyle("-fx-background-color: #1E90FF; -fx-text-fill: white; -fx-font-weight: bold;"));
+        loadOlderTransactionsButton.setOnMouseExited(e -> loadOlderTransactionsButton.setStyle("-fx-background-color: #4169E1; -fx-text-fill: white; -fx-font-weight: bold;"));
+        loadOlderTransactionsButton.setDisable(true);
+        loadOlderTransactionsButton.setOnAction(e -> loadOlderTransactions());
+
+        HBox accountBox = new HBox(10, transactionsAccountCombo, transactionsBusyIndicator);
+        accountBox.setAlignment(Pos.CENTER_LEFT);
+        HBox historyButtons = new HBox(10, refreshButton, loadOlderTransactionsButton);
+        vbox.getChildren().addAll(titleLabel, accountBox, transactionsListView, historyButtons);
         return vbox;
     }
 
-    private void reloadAccounts(ListView<String> listView) {
+    private void reloadAccounts(ListView<String> listView, List<Account> accounts) {
         listView.getItems().clear();
-        if (currentUser == null) {
-            return;
-        }
-        try {
-            List<Account> accounts = bankingService.getAccountsForUser(currentUser.getId());
-            for (Account a : accounts) {
-                listView.getItems().add(a.getAccountNumber() + " - Balance: $" + a.getBalance());
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            listView.getItems().add("Error loading accounts: " + e.getMessage());
+        for (Account a : accounts) {
+            listView.getItems().add(a.getAccountNumber() + " - Balance: $" + a.getBalance());
         }
     }
 
-    private void reloadAllAccounts(ListView<String> listView) {
-        listView.getItems().clear();
-        try {
-            List<String> accountNumbers = bankingService.getAllAccountNumbers();
-            for (String accNum : accountNumbers) {
-                listView.getItems().add(accNum);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            listView.getItems().add("Error loading accounts: " + e.getMessage());
-        }
+    private void reloadAllAccounts(ListView<String> listView, List<String> accountNumbers) {
+        listView.getItems().setAll(accountNumbers);
     }
     
     /**
      * Load accounts into a combo box with balance information
      */
-    private void loadAccountsIntoCombo(ComboBox<String> combo) {
+    private void loadAccountsIntoCombo(ComboBox<String> combo, List<Account> accounts) {
         combo.getItems().clear();
-        try {
-            List<Account> accounts = bankingService.getAccountsForUser(currentUser.getId());
-            for (Account acc : accounts) {
-                combo.getItems().add(acc.getAccountNumber() + " (Balance: " + acc.getBalance() + ")");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (Account acc : accounts) {
+            combo.getItems().add(acc.getAccountNumber() + " (Balance: " + acc.getBalance() + ")");
         }
     }
     
     /**
      * Load all account numbers into a combo box
      */
-    private void loadAllAccountsIntoCombo(ComboBox<String> combo) {
-        combo.getItems().clear();
-        try {
-            List<String> allAccounts = bankingService.getAllAccountNumbers();
-            for (String accNum : allAccounts) {
-                combo.getItems().add(accNum);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private void loadAllAccountsIntoCombo(ComboBox<String> combo, List<String> allAccounts) {
+        combo.getItems().setAll(allAccounts);
+    }
+
+    /**
+     * Stop applying results of loads that are still running (logout, newer refresh).
+     * Tasks are not interrupted: interrupting a thread blocked on a JDBC socket
+     * would close the pooled connection, so the stale result is simply dropped.
+     */
+    private void cancelPendingLoads() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+        if (transactionsTask != null) {
+            transactionsTask.cancel(false);
+            transactionsTask = null;
         }
     }
     
     /**
-     * Refresh all UI components after operations
+     * Refresh all UI components after operations. The data is loaded in the
+     * background; a refresh still in flight is superseded by the new one.
      */
     private void refreshAllUI() {
         if (currentUser == null) return;
-        
+
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        int userId = currentUser.getId();
+        refreshTask = runInBackground(
+            () -> new DashboardData(bankingService.getAccountsForUser(userId), bankingService.getAllAccountNumbers()),
+            this::applyDashboardData,
+            ex -> {
+                if (accountsListView != null) {
+                    accountsListView.getItems().setAll("Error loading accounts: " + ex.getMessage());
+                }
+                if (allAccountsListView != null) {
+                    allAccountsListView.getItems().setAll("Error loading accounts: " + ex.getMessage());
+                }
+            },
+            dashboardBusyIndicator);
+    }
+
+    private void applyDashboardData(DashboardData data) {
         // Refresh accounts list
         if (accountsListView != null) {
-            reloadAccounts(accountsListView);
+            reloadAccounts(accountsListView, data.accounts());
         }
         
         // Refresh all accounts list
         if (allAccountsListView != null) {
-            reloadAllAccounts(allAccountsListView);
+            reloadAllAccounts(allAccountsListView, data.allAccountNumbers());
         }
         
         // Refresh combo boxes
         if (depositAccountCombo != null) {
-            loadAccountsIntoCombo(depositAccountCombo);
+            loadAccountsIntoCombo(depositAccountCombo, data.accounts());
         }
         
         if (withdrawAccountCombo != null) {
-            loadAccountsIntoCombo(withdrawAccountCombo);
+            loadAccountsIntoCombo(withdrawAccountCombo, data.accounts());
         }
         
         if (transferFromCombo != null) {
-            loadAccountsIntoCombo(transferFromCombo);
+            loadAccountsIntoCombo(transferFromCombo, data.accounts());
         }
         
         if (transferToCombo != null) {
-            loadAllAccountsIntoCombo(transferToCombo);
+            loadAllAccountsIntoCombo(transferToCombo, data.allAccountNumbers());
         }
         
         if (transactionsAccountCombo != null) {
-            loadAccountsIntoCombo(transactionsAccountCombo);
+            loadAccountsIntoCombo(transactionsAccountCombo, data.accounts());
             
             // Refresh transactions if an account is selected
             String selected = transactionsAccountCombo.getValue();
             if (selected != null && transactionsListView != null) {
-                String accountNumber = selected.split(" ")[0];
-                try {
-                    Account account = bankingService.getAccountByNumber(accountNumber);
-                    if (account != null) {
-                        reloadTransactions(account.getId(), transactionsListView);
-                    }
-                } catch (SQLException ex) {
-                    transactionsListView.getItems().clear();
-                    transactionsListView.getItems().add("Error: " + ex.getMessage());
-                }
+                reloadTransactions(selected.split(" ")[0]);
             }
         }
     }
 
-    private void reloadTransactions(int accountId, ListView<String> listView) {
-        listView.getItems().clear();
+    /**
+     * Load the newest page of an account's history in the background. Selecting
+     * another account (or refreshing) while a load is running drops the stale result.
+     */
+    private void reloadTransactions(String accountNumber) {
+        if (transactionsTask != null) {
+            transactionsTask.cancel(false);
+        }
+        transactionsTask = runInBackground(() -> {
+            Account account = bankingService.getAccountByNumber(accountNumber);
+            return account != null ? loadHistoryPage(account.getId(), null) : null;
+        }, page -> {
+            if (page != null) {
+                transactionsListView.getItems().setAll(page.lines().isEmpty() ? List.of("No transactions found") : page.lines());
+                applyHistoryCursor(page);
+            }
+        }, ex -> {
+            transactionsListView.getItems().clear();
+            transactionsListView.getItems().add("Error: " + ex.getMessage());
+            loadOlderTransactionsButton.setDisable(true);
+        }, transactionsBusyIndicator);
+    }
+
+    /**
+     * Append the next (older) page of the account currently shown.
+     */
+    private void loadOlderTransactions() {
+        if (transactionsNextCursor == null) {
+            return;
+        }
+        if (transactionsTask != null) {
+            transactionsTask.cancel(false);
+        }
+        int accountId = transactionsAccountId;
+        TransactionCursor cursor = transactionsNextCursor;
+        loadOlderTransactionsButton.setDisable(true);
+        transactionsTask = runInBackground(() -> loadHistoryPage(accountId, cursor), page -> {
+            transactionsListView.getItems().addAll(page.lines());
+            applyHistoryCursor(page);
+        }, ex -> {
+            transactionsListView.getItems().add("Error loading transactions: " + ex.getMessage());
+            loadOlderTransactionsButton.setDisable(false);
+        }, transactionsBusyIndicator);
+    }
+
+    private void applyHistoryCursor(HistoryPage page) {
+        transactionsAccountId = page.accountId();
+        transactionsNextCursor = page.nextCursor();
+        loadOlderTransactionsButton.setDisable(page.nextCursor() == null);
+    }
+
+    /**
+     * Fetch and format one page of history. Runs on a background worker.
+     */
+    private HistoryPage loadHistoryPage(int accountId, TransactionCursor before) throws SQLException {
+        TransactionPage page = bankingService.getTransactionHistoryPage(accountId, before, HISTORY_PAGE_SIZE);
+        return new HistoryPage(accountId, formatTransactions(page.getTransactions()), page.getNextCursor());
+    }
+
+    private List<String> formatTransactions(List<BankTransaction> transactions) {
+        List<String> lines = new ArrayList<>();
+        if (transactions.isEmpty()) {
+            return lines;
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        // Resolve every account id of the page in one round trip
+        Set<Integer> accountIds = new HashSet<>();
+        for (BankTransaction t : transactions) {
+            if (t.getFromAccountId() != null) {
+                accountIds.add(t.getFromAccountId());
+            }
+            if (t.getToAccountId() != null) {
+                accountIds.add(t.getToAccountId());
+            }
+        }
+        Map<Integer, String> accountNumbers;
         try {
-            List<BankTransaction> transactions = bankingService.getTransactionHistory(accountId);
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            accountNumbers = bankingService.getAccountNumbersByIds(accountIds);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            accountNumbers = Map.of();
+        }
+
+        for (BankTransaction t : transactions) {
+            String type;
+            String fromAccount = null;
+            String toAccount = null;
             
-            if (transactions.isEmpty()) {
-                listView.getItems().add("No transactions found");
+            if (t.getFromAccountId() == null) {
+                type = "DEPOSIT";
+                toAccount = accountNumbers.getOrDefault(t.getToAccountId(), "N/A");
+            } else if (t.getToAccountId() == null) {
+                type = "WITHDRAWAL";
+                fromAccount = accountNumbers.getOrDefault(t.getFromAccountId(), "N/A");
             } else {
-                for (BankTransaction t : transactions) {
-                    String type;
-                    String fromAccount = null;
-                    String toAccount = null;
-                    
-                    if (t.getFromAccountId() == null) {
-                        type = "DEPOSIT";
-                        // For deposit, get the receiving account
-                        try {
-                            Account toAcc = bankingService.getAccountById(t.getToAccountId());
-                            toAccount = toAcc != null ? toAcc.getAccountNumber() : "N/A";
-                        } catch (Exception e) {
-                            toAccount = "N/A";
-                        }
-                    } else if (t.getToAccountId() == null) {
-                        type = "WITHDRAWAL";
-                        // For withdrawal, get the source account
-                        try {
-                            Account fromAcc = bankingService.getAccountById(t.getFromAccountId());
-                            fromAccount = fromAcc != null ? fromAcc.getAccountNumber() : "N/A";
-                        } catch (Exception e) {
-                            fromAccount = "N/A";
-                        }
-                    } else {
-                        type = "TRANSFER";
-                        // For transfer, get both accounts
-                        try {
-                            Account fromAcc = bankingService.getAccountById(t.getFromAccountId());
-                            fromAccount = fromAcc != null ? fromAcc.getAccountNumber() : "N/A";
-                            Account toAcc = bankingService.getAccountById(t.getToAccountId());
-                            toAccount = toAcc != null ? toAcc.getAccountNumber() : "N/A";
-                        } catch (Exception e) {
-                            fromAccount = "N/A";
-                            toAccount = "N/A";
-                        }
-                    }
-                    
-                    String line;
-                    if (type.equals("DEPOSIT")) {
-                        line = String.format("[%s] %s - To: %s - Amount: $%s - %s",
-                            t.getCreatedAt() != null ? t.getCreatedAt().format(formatter) : "N/A",
-                            type,
-                            toAccount,
-                            t.getAmount(),
-                            t.getDescription() != null ? t.getDescription() : "");
-                    } else if (type.equals("WITHDRAWAL")) {
-                        line = String.format("[%s] %s - From: %s - Amount: $%s - %s",
-                            t.getCreatedAt() != null ? t.getCreatedAt().format(formatter) : "N/A",
-                            type,
-                            fromAccount,
-                            t.getAmount(),
-                            t.getDescription() != null ? t.getDescription() : "");
-                    } else {
-                        line = String.format("[%s] %s - From: %s - To: %s - Amount: $%s - %s",
-                            t.getCreatedAt() != null ? t.getCreatedAt().format(formatter) : "N/A",
-                            type,
-                            fromAccount,
-                            toAccount,
-                            t.getAmount(),
-                            t.getDescription() != null ? t.getDescription() : "");
-                    }
-                    listView.getItems().add(line);
-                }
+                type = "TRANSFER";
+                fromAccount = accountNumbers.getOrDefault(t.getFromAccountId(), "N/A");
+                toAccount = accountNumbers.getOrDefault(t.getToAccountId(), "N/A");
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            listView.getItems().add("Error loading transactions: " + e.getMessage());
+            
+            String line;
+            if (type.equals("DEPOSIT")) {
+                line = String.format("[%s] %s - To: %s - Amount: $%s - %s",
+                    t.getCreatedAt() != null ? t.getCreatedAt().format(formatter) : "N/A",
+                    type,
+                    toAccount,
+                    t.getAmount(),
+                    t.getDescription() != null ? t.getDescription() : "");
+            } else if (type.equals("WITHDRAWAL")) {
+                line = String.format("[%s] %s - From: %s - Amount: $%s - %s",
+                    t.getCreatedAt() != null ? t.getCreatedAt().format(formatter) : "N/A",
+                    type,
+                    fromAccount,
+                    t.getAmount(),
+                    t.getDescription() != null ? t.getDescription() : "");
+            } else {
+                line = String.format("[%s] %s - From: %s - To: %s - Amount: $%s - %s",
+                    t.getCreatedAt() != null ? t.getCreatedAt().format(formatter) : "N/A",
+                    type,
+                    fromAccount,
+                    toAccount,
+                    t.getAmount(),
+                    t.getDescription() != null ? t.getDescription() : "");
+            }
+            lines.add(line);
         }
+        return lines;
     }
 }
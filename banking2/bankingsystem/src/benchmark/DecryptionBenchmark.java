@@ -0,0 +1,82 @@
+package benchmark;
+
+import dao.DecryptionPipeline;
+import dao.TransactionDao;
+import model.BankTransaction;
+import service.RSAKeyRing;
+import service.RSAKeyService;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Rows/sec of TransactionDao.findAll() against the number of decryption threads,
+ * on the ledger of the configured database: rows are read from the *_bin columns
+ * and decrypted by the shipped code (TransactionDao, DataKeyService, RSAKeyService)
+ * through a {@link DecryptionPipeline} of each size. Read-only.
+ * <p>
+ * The decrypted-transaction cache is bypassed, and every thread count gets a new
+ * DAO (so a cold unwrapped-data-key cache) plus a warm-up pass; the best of three
+ * runs is reported. The time of the same query without decryption (a lazily
+ * decrypting DAO) is measured first and subtracted to give the decryption rate.
+ * Run with -Dbanking.rsa.cacheSize=0, otherwise repeated runs measure the RSA
+ * result caches instead of RSA.
+ * <p>
+ * Usage: {@code java -Dbanking.rsa.cacheSize=0 benchmark.DecryptionBenchmark [maxThreads]}
+ */
+public class DecryptionBenchmark {
+
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws SQLException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        RSAKeyRing.getInstance().warmUp().join();
+        if (RSAKeyService.getDecryptCacheStats() != null) {
+            System.out.println("Warning: RSA decryption cache enabled; run with -Dbanking.rsa.cacheSize=0");
+        }
+
+        // Lecture seule, sans déchiffrement : coût de la requête et du transfert
+        TransactionDao fetchOnly = new TransactionDao(new DecryptionPipeline(1), null, true);
+        int rowCount = fetchOnly.findAll().size();
+        if (rowCount == 0) {
+            System.out.println("The ledger is empty: nothing to decrypt");
+            return;
+        }
+        long fetchNanos = best(fetchOnly);
+        System.out.printf("%d rows, %d cores, fetch %.1f ms%n", rowCount,
+                Runtime.getRuntime().availableProcessors(), fetchNanos / 1e6);
+        System.out.println("threads   rows/sec   decrypt rows/sec   speedup");
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            TransactionDao dao = new TransactionDao(new DecryptionPipeline(threads), null, false);
+            long totalNanos = best(dao);
+            double rowsPerSecond = rowCount / (totalNanos / 1e9);
+            double decryptRowsPerSecond = rowCount / (Math.max(1, totalNanos - fetchNanos) / 1e9);
+            if (threads == 1) {
+                baseline = decryptRowsPerSecond;
+            }
+            System.out.printf("%7d %10.0f %18.0f %8.2fx%n", threads, rowsPerSecond, decryptRowsPerSecond,
+                    decryptRowsPerSecond / baseline);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Best time of findAll() over {@value #RUNS} runs, after a warm-up.
+     */
+    private static long best(TransactionDao dao) throws SQLException {
+        int expected = dao.findAll().size(); // warm-up
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            List<BankTransaction> result = dao.findAll();
+            best = Math.min(best, System.nanoTime() - start);
+            if (result.size() != expected) {
+                throw new IllegalStateException("Row count changed during the benchmark: " + result.size());
+            }
+        }
+        return best;
+    }
+}
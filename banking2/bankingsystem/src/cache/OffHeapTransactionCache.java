@@ -0,0 +1,233 @@
+package cache;
+
+import model.BankTransaction;
+import model.BankTransactionCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TransactionCache} keeping serialized rows in fixed-size slots of one
+ * direct buffer, outside the Java heap. The id-to-slot index and the LRU order
+ * are plain int arrays sized once for every slot, so the cache holds no
+ * per-entry objects for the GC to trace, however many rows it keeps; only the
+ * transactions returned by {@link #get} are allocated. Slot layout:
+ * <pre>
+ * length (2) | {@link BankTransactionCodec} record (length)
+ * </pre>
+ * Rows too long for a slot (very long descriptions) are simply not cached.
+ */
+final class OffHeapTransactionCache extends TransactionCache {
+
+    static final int SLOT_BYTES = 256;
+
+    private static final int NONE = -1;
+
+    private final ByteBuffer slots;
+    private final int slotCount;
+    private final long maxBytes;
+
+    // Slots 0..used-1 are occupied; once all are, the least recently used one is recycled
+    private int used;
+    private final int[] idBySlot;
+    // Liste doublement chaînée des slots, du moins récemment utilisé (eldest) au plus récent (newest)
+    private final int[] olderSlot;
+    private final int[] newerSlot;
+    private int eldest = NONE;
+    private int newest = NONE;
+    // Open-addressing hash index, linear probing: slot + 1, or 0 for an empty bucket
+    private final int[] buckets;
+    private final int bucketMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    OffHeapTransactionCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.slotCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE / SLOT_BYTES, maxBytes / SLOT_BYTES));
+        this.slots = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES);
+        this.idBySlot = new int[slotCount];
+        this.olderSlot = new int[slotCount];
+        this.newerSlot = new int[slotCount];
+        // At most half full, so probe sequences stay short
+        this.buckets = new int[Integer.highestOneBit(slotCount) << 2];
+        this.bucketMask = buckets.length - 1;
+    }
+
+    @Override
+    public BankTransaction get(int id) {
+        byte[] record;
+        synchronized (this) {
+            int slot = find(id);
+            if (slot == NONE) {
+                record = null;
+            } else {
+                moveToNewest(slot);
+                int offset = slot * SLOT_BYTES;
+                record = new byte[slots.getShort(offset)];
+                slots.get(offset + 2, record);
+            }
+        }
+        if (record == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return decode(id, record);
+    }
+
+    @Override
+    public void put(BankTransaction transaction) {
+        byte[] record = encode(transaction);
+        if (record == null) {
+            return;
+        }
+        int id = transaction.getId();
+        synchronized (this) {
+            int slot = find(id);
+            if (slot == NONE) {
+                slot = used < slotCount ? used++ : reclaimEldest();
+                idBySlot[slot] = id;
+                insert(id, slot);
+                linkNewest(slot);
+            } else {
+                moveToNewest(slot);
+            }
+            int offset = slot * SLOT_BYTES;
+            slots.putShort(offset, (short) record.length);
+            slots.put(offset + 2, record);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(buckets, 0);
+        used = 0;
+        eldest = NONE;
+        newest = NONE;
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public LruCache.Stats getStats() {
+        int size;
+        synchronized (this) {
+            size = used;
+        }
+        return new LruCache.Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * Unindex the least recently used slot and return it for reuse.
+     */
+    private int reclaimEldest() {
+        int slot = eldest;
+        remove(idBySlot[slot]);
+        unlink(slot);
+        evictions.increment();
+        return slot;
+    }
+
+    private int bucketOf(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & bucketMask;
+    }
+
+    private int find(int id) {
+        for (int i = bucketOf(id); buckets[i] != 0; i = (i + 1) & bucketMask) {
+            int slot = buckets[i] - 1;
+            if (idBySlot[slot] == id) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    private void insert(int id, int slot) {
+        int i = bucketOf(id);
+        while (buckets[i] != 0) {
+            i = (i + 1) & bucketMask;
+        }
+        buckets[i] = slot + 1;
+    }
+
+    /**
+     * Remove an indexed id, shifting later entries of its probe sequence back
+     * into the hole so that lookups never stop early on it.
+     */
+    private void remove(int id) {
+        int gap = bucketOf(id);
+        while (idBySlot[buckets[gap] - 1] != id) {
+            gap = (gap + 1) & bucketMask;
+        }
+        for (int i = (gap + 1) & bucketMask; buckets[i] != 0; i = (i + 1) & bucketMask) {
+            int home = bucketOf(idBySlot[buckets[i] - 1]);
+            // The entry may fill the hole only if the hole lies between its home bucket and i
+            if (((i - home) & bucketMask) >= ((i - gap) & bucketMask)) {
+                buckets[gap] = buckets[i];
+                gap = i;
+            }
+        }
+        buckets[gap] = 0;
+    }
+
+    private void moveToNewest(int slot) {
+        if (slot != newest) {
+            unlink(slot);
+            linkNewest(slot);
+        }
+    }
+
+    private void unlink(int slot) {
+        int older = olderSlot[slot];
+        int newer = newerSlot[slot];
+        if (older == NONE) {
+            eldest = newer;
+        } else {
+            newerSlot[older] = newer;
+        }
+        if (newer == NONE) {
+            newest = older;
+        } else {
+            olderSlot[newer] = older;
+        }
+    }
+
+    private void linkNewest(int slot) {
+        olderSlot[slot] = newest;
+        newerSlot[slot] = NONE;
+        if (newest == NONE) {
+            eldest = slot;
+        } else {
+            newerSlot[newest] = slot;
+        }
+        newest = slot;
+    }
+
+    /**
+     * The slot payload for a transaction, or null if it does not fit in a slot.
+     */
+    static byte[] encode(BankTransaction t) {
+        byte[] record;
+        try {
+            record = BankTransactionCodec.encode(0, t.getFromAccountId(), t.getToAccountId(), t.getAmount(),
+                    t.getCreatedAt(), t.getDescription());
+        } catch (IllegalArgumentException e) {
+            return null; // Montant hors format : on ne met simplement pas la ligne en cache
+        }
+        return record.length > SLOT_BYTES - 2 ? null : record;
+    }
+
+    static BankTransaction decode(int id, byte[] record) {
+        BankTransaction t = new BankTransaction();
+        t.setId(id);
+        BankTransactionCodec.decode(record, 0, 0, t);
+        return t;
+    }
+}
@@ -0,0 +1,47 @@
+package cache;
+
+import model.BankTransaction;
+
+/**
+ * {@link TransactionCache} keeping BankTransaction objects in an {@link LruCache}.
+ */
+final class OnHeapTransactionCache extends TransactionCache {
+
+    // Rough retained size of one entry: the transaction, its BigDecimal, String
+    // and LocalDateTime, plus the map node and boxed key
+    static final int ESTIMATED_ENTRY_BYTES = 400;
+
+    private final LruCache<Integer, BankTransaction> entries;
+    private final long maxBytes;
+
+    OnHeapTransactionCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.entries = new LruCache<>((int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / ESTIMATED_ENTRY_BYTES)));
+    }
+
+    @Override
+    public BankTransaction get(int id) {
+        BankTransaction cached = entries.get(id);
+        return cached != null ? copyOf(cached) : null;
+    }
+
+    @Override
+    public void put(BankTransaction transaction) {
+        entries.put(transaction.getId(), copyOf(transaction));
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public LruCache.Stats getStats() {
+        return entries.getStats();
+    }
+}
@@ -0,0 +1,62 @@
+package cache;
+
+import model.BankTransaction;
+
+/**
+ * Cache of decrypted ledger rows keyed by transactions.id. Rows never change once
+ * inserted (a key rotation re-encrypts them to the same values), so entries need
+ * no invalidation and a cached row costs no cryptography at all.
+ * <p>
+ * Callers always get their own copy, so mutating a returned transaction never
+ * affects the cache.
+ */
+public abstract class TransactionCache {
+
+    private static final TransactionCache SHARED = create(
+            Long.getLong("banking.txcache.maxBytes", 16L * 1024 * 1024),
+            Boolean.getBoolean("banking.txcache.offHeap"));
+
+    /**
+     * Process-wide cache shared by all DAO instances, configured with
+     * banking.txcache.maxBytes (memory budget, default 16 MB) and
+     * banking.txcache.offHeap (keep rows outside the Java heap, default false).
+     * Null when the budget is 0, i.e. caching is disabled.
+     */
+    public static TransactionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * A cache holding about maxBytes of rows, on or off the Java heap; null if maxBytes <= 0.
+     */
+    public static TransactionCache create(long maxBytes, boolean offHeap) {
+        if (maxBytes <= 0) {
+            return null;
+        }
+        return offHeap ? new OffHeapTransactionCache(maxBytes) : new OnHeapTransactionCache(maxBytes);
+    }
+
+    /**
+     * A copy of the cached transaction, or null.
+     */
+    public abstract BankTransaction get(int id);
+
+    public abstract void put(BankTransaction transaction);
+
+    public abstract void clear();
+
+    public abstract long getMaxBytes();
+
+    public abstract LruCache.Stats getStats();
+
+    static BankTransaction copyOf(BankTransaction t) {
+        BankTransaction copy = new BankTransaction();
+        copy.setId(t.getId());
+        copy.setFromAccountId(t.getFromAccountId());
+        copy.setToAccountId(t.getToAccountId());
+        copy.setAmount(t.getAmount());
+        copy.setDescription(t.getDescription());
+        copy.setCreatedAt(t.getCreatedAt());
+        return copy;
+    }
+}
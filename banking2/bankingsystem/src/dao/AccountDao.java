@@ -7,10 +7,21 @@ import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AccountDao {
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    // account_number never changes once an account exists, so entries never go stale
+    private static final Map<Integer, String> ACCOUNT_NUMBER_CACHE = new ConcurrentHashMap<>();
+
     private DataSource getDataSource() throws SQLException {
         return DataSourceManager.getDataSource();
     }
@@ -23,8 +34,9 @@ public class AccountDao {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper mapper = new RowMapper(rs);
                 while (rs.next()) {
-                    accounts.add(mapRow(rs));
+                    accounts.add(mapper.map(rs));
                 }
             }
         }
@@ -65,7 +77,7 @@ public class AccountDao {
             ps.setString(1, accountNumber);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return mapRow(rs);
+                    return new RowMapper(rs).map(rs);
                 }
                 return null;
             }
@@ -81,18 +93,64 @@ public class AccountDao {
         }
     }
 
+    /**
+     * Update several balances with one JDBC batch (rewritten into a single
+     * multi-statement round trip by rewriteBatchedStatements).
+     */
+    public void updateBalances(Map<Integer, BigDecimal> newBalances, Connection existingConn) throws SQLException {
+        if (newBalances.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE accounts SET balance = ? WHERE id = ?";
+        try (PreparedStatement ps = existingConn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, BigDecimal> entry : newBalances.entrySet()) {
+                ps.setBigDecimal(1, entry.getValue());
+                ps.setInt(2, entry.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
     public Account findByIdForUpdate(int accountId, Connection existingConn) throws SQLException {
         String sql = "SELECT * FROM accounts WHERE id = ? FOR UPDATE";
         try (PreparedStatement ps = existingConn.prepareStatement(sql)) {
             ps.setInt(1, accountId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return mapRow(rs);
+                    return new RowMapper(rs).map(rs);
                 }
                 return null;
             }
         }
     }
+
+    /**
+     * Lock several accounts in one statement. Rows are locked in ascending id order,
+     * so concurrent callers locking overlapping sets cannot deadlock each other.
+     */
+    public Map<Integer, Account> findByIdsForUpdate(Collection<Integer> accountIds, Connection existingConn) throws SQLException {
+        Map<Integer, Account> accounts = new HashMap<>();
+        if (accountIds.isEmpty()) {
+            return accounts;
+        }
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(accountIds));
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT * FROM accounts WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE";
+        try (PreparedStatement ps = existingConn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMapper mapper = new RowMapper(rs);
+                while (rs.next()) {
+                    Account account = mapper.map(rs);
+                    accounts.put(account.getId(), account);
+                }
+            }
+        }
+        return accounts;
+    }
     
     public List<String> getAllAccountNumbers() throws SQLException {
         String sql = "SELECT account_number FROM accounts ORDER BY account_number";
@@ -102,13 +160,57 @@ public class AccountDao {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    accountNumbers.add(rs.getString("account_number"));
+                    accountNumbers.add(rs.getString(1));
                 }
             }
         }
         return accountNumbers;
     }
     
+    /**
+     * Resolve account ids to account numbers. Ids already seen are served from the
+     * cache; the rest are fetched with one IN (...) query per {@value #MAX_IDS_PER_QUERY} ids.
+     * Unknown ids are absent from the result.
+     */
+    public Map<Integer, String> getAccountNumbersByIds(Collection<Integer> accountIds) throws SQLException {
+        Map<Integer, String> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : new TreeSet<>(accountIds)) {
+            String accountNumber = ACCOUNT_NUMBER_CACHE.get(id);
+            if (accountNumber != null) {
+                result.put(id, accountNumber);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        DataSource dataSource = getDataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            for (int start = 0; start < missing.size(); start += MAX_IDS_PER_QUERY) {
+                List<Integer> page = missing.subList(start, Math.min(start + MAX_IDS_PER_QUERY, missing.size()));
+                String placeholders = String.join(", ", Collections.nCopies(page.size(), "?"));
+                String sql = "SELECT id, account_number FROM accounts WHERE id IN (" + placeholders + ")";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < page.size(); i++) {
+                        ps.setInt(i + 1, page.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            int id = rs.getInt(1);
+                            String accountNumber = rs.getString(2);
+                            ACCOUNT_NUMBER_CACHE.put(id, accountNumber);
+                            result.put(id, accountNumber);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
     public Account findById(int accountId) throws SQLException {
         String sql = "SELECT * FROM accounts WHERE id = ?";
         DataSource dataSource = getDataSource();
@@ -117,20 +219,39 @@ public class AccountDao {
             ps.setInt(1, accountId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return mapRow(rs);
+                    return new RowMapper(rs).map(rs);
                 }
                 return null;
             }
         }
     }
 
-    private Account mapRow(ResultSet rs) throws SQLException {
-        Account a = new Account();
-        a.setId(rs.getInt("id"));
-        a.setUserId(rs.getInt("user_id"));
-        a.setAccountNumber(rs.getString("account_number"));
-        a.setBalance(rs.getBigDecimal("balance"));
-        return a;
+    /**
+     * Reads accounts rows by column index, resolved once per result set.
+     */
+    private static final class RowMapper {
+        private final int id;
+        private final int userId;
+        private final int accountNumber;
+        private final int balance;
+
+        RowMapper(ResultSet rs) throws SQLException {
+            ColumnLayout columns = ColumnLayout.of(rs);
+            id = columns.require("id");
+            userId = columns.require("user_id");
+            accountNumber = columns.require("account_number");
+            balance = columns.require("balance");
+        }
+
+        Account map(ResultSet rs) throws SQLException {
+            Account a = new Account();
+            a.setId(rs.getInt(id));
+            a.setUserId(rs.getInt(userId));
+            a.setAccountNumber(rs.getString(accountNumber));
+            a.setBalance(rs.getBigDecimal(balance));
+            ACCOUNT_NUMBER_CACHE.put(a.getId(), a.getAccountNumber());
+            return a;
+        }
     }
 }
 
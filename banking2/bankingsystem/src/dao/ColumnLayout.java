@@ -0,0 +1,45 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Positions of a result set's columns by lower-case label, read once from its
+ * metadata. Row mappers resolve the indexes they need up front and then read
+ * every row by index, with no per-row name lookups and no probing of columns
+ * that may not exist.
+ */
+final class ColumnLayout {
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private ColumnLayout(ResultSetMetaData metaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            // Premier gagnant, comme la recherche par nom du driver
+            indexes.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    static ColumnLayout of(ResultSet rs) throws SQLException {
+        return new ColumnLayout(rs.getMetaData());
+    }
+
+    /**
+     * 1-based index of the column, or 0 if the result set does not have it.
+     */
+    int indexOf(String column) {
+        return indexes.getOrDefault(column, 0);
+    }
+
+    int require(String column) throws SQLException {
+        int index = indexOf(column);
+        if (index == 0) {
+            throw new SQLException("Result set has no '" + column + "' column");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,123 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decrypts rows that were already fetched from the database on a ForkJoin pool.
+ * Rows are independent (each carries its own ciphertexts and wrapped data key),
+ * so the list is split into contiguous chunks decrypted in parallel; results come
+ * back in the input order.
+ * <p>
+ * The first row is always decrypted on the calling thread so that keys are loaded
+ * and caches are warm before the work fans out.
+ */
+public class DecryptionPipeline {
+
+    @FunctionalInterface
+    public interface RowDecryptor<R, T> {
+        T decrypt(R row) throws SQLException;
+    }
+
+    // Below this many rows per chunk the hand-off costs more than it saves
+    private static final int MIN_ROWS_PER_TASK = 8;
+
+    /**
+     * Shared pipeline, sized with the banking.decrypt.parallelism system property
+     * (defaults to the number of cores; 1 disables parallel decryption).
+     */
+    public static final DecryptionPipeline DEFAULT = new DecryptionPipeline(
+            Integer.getInteger("banking.decrypt.parallelism", Runtime.getRuntime().availableProcessors()));
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public DecryptionPipeline(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public <R, T> List<T> decryptAll(List<R> rows, RowDecryptor<R, T> decryptor) throws SQLException {
+        int n = rows.size();
+        List<T> decrypted = new ArrayList<>(n);
+        if (n == 0) {
+            return decrypted;
+        }
+        decrypted.add(decryptor.decrypt(rows.get(0)));
+
+        int remaining = n - 1;
+        if (pool == null || remaining < 2 * MIN_ROWS_PER_TASK) {
+            for (int i = 1; i < n; i++) {
+                decrypted.add(decryptor.decrypt(rows.get(i)));
+            }
+            return decrypted;
+        }
+
+        Object[] results = new Object[n];
+        // First failure of any chunk; the other chunks stop at their next row
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int chunks = Math.min(parallelism * 4, remaining / MIN_ROWS_PER_TASK);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = 1 + (int) ((long) remaining * c / chunks);
+            int to = 1 + (int) ((long) remaining * (c + 1) / chunks);
+            tasks.add(pool.submit(() -> {
+                try {
+                    for (int i = from; i < to && failure.get() == null; i++) {
+                        results[i] = decryptor.decrypt(rows.get(i));
+                    }
+                } catch (SQLException | RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        awaitAll(tasks);
+        rethrow(failure.get());
+
+        for (int i = 1; i < n; i++) {
+            @SuppressWarnings("unchecked")
+            T row = (T) results[i];
+            decrypted.add(row);
+        }
+        return decrypted;
+    }
+
+    private static void awaitAll(List<ForkJoinTask<?>> tasks) throws SQLException {
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                tasks.forEach(t -> t.cancel(false));
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while decrypting", e);
+            } catch (ExecutionException e) {
+                // Chunks catch their own failures; this only happens if a task was cancelled
+                throw new SQLException("Decryption task failed: " + e.getCause(), e.getCause());
+            }
+        }
+    }
+
+    private static void rethrow(Throwable failure) throws SQLException {
+        if (failure instanceof SQLException sql) {
+            throw sql;
+        }
+        if (failure instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+    }
+}
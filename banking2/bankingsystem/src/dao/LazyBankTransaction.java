@@ -0,0 +1,112 @@
+package dao;
+
+import model.BankTransaction;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+/**
+ * A transaction that keeps its row's ciphertexts and decrypts each field the
+ * first time it is read. Id and creation date are stored in clear and are
+ * available immediately. A decrypted (or explicitly set) field is kept, so
+ * each field is decrypted at most once. Packed rows hold all fields in one RSA
+ * block, so reading any field of such a row decrypts all of them.
+ * <p>
+ * Getters that fail to decrypt throw an {@link IllegalStateException} wrapping
+ * the {@link SQLException}.
+ */
+final class LazyBankTransaction extends BankTransaction {
+
+    static final int FROM_ACCOUNT_ID = 1;
+    static final int TO_ACCOUNT_ID = 2;
+    static final int AMOUNT = 4;
+    static final int DESCRIPTION = 8;
+    static final int ALL_FIELDS = FROM_ACCOUNT_ID | TO_ACCOUNT_ID | AMOUNT | DESCRIPTION;
+
+    private final TransactionDao dao;
+    private TransactionDao.EncryptedRow row; // released once every field is decrypted
+    private int pending = ALL_FIELDS;
+
+    LazyBankTransaction(TransactionDao.EncryptedRow row, TransactionDao dao) {
+        this.row = row;
+        this.dao = dao;
+        setId(row.id);
+        setCreatedAt(row.createdAt);
+    }
+
+    /**
+     * True once all encrypted fields have been decrypted.
+     */
+    synchronized boolean isFullyDecrypted() {
+        return pending == 0;
+    }
+
+    @Override
+    public synchronized Integer getFromAccountId() {
+        resolve(FROM_ACCOUNT_ID);
+        return super.getFromAccountId();
+    }
+
+    @Override
+    public synchronized void setFromAccountId(Integer fromAccountId) {
+        resolved(FROM_ACCOUNT_ID);
+        super.setFromAccountId(fromAccountId);
+    }
+
+    @Override
+    public synchronized Integer getToAccountId() {
+        resolve(TO_ACCOUNT_ID);
+        return super.getToAccountId();
+    }
+
+    @Override
+    public synchronized void setToAccountId(Integer toAccountId) {
+        resolved(TO_ACCOUNT_ID);
+        super.setToAccountId(toAccountId);
+    }
+
+    @Override
+    public synchronized BigDecimal getAmount() {
+        resolve(AMOUNT);
+        return super.getAmount();
+    }
+
+    @Override
+    public synchronized void setAmount(BigDecimal amount) {
+        resolved(AMOUNT);
+        super.setAmount(amount);
+    }
+
+    @Override
+    public synchronized String getDescription() {
+        resolve(DESCRIPTION);
+        return super.getDescription();
+    }
+
+    @Override
+    public synchronized void setDescription(String description) {
+        resolved(DESCRIPTION);
+        super.setDescription(description);
+    }
+
+    private void resolve(int field) {
+        if ((pending & field) == 0) {
+            return;
+        }
+        try {
+            // Les setters appelés par le DAO marquent les champs comme déchiffrés
+            dao.decryptFields(row, field, this);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to decrypt transaction " + getId() + ": " + e.getMessage(), e);
+        }
+        // A field absent from the row stays null and is not looked up again
+        resolved(field);
+    }
+
+    private void resolved(int field) {
+        pending &= ~field;
+        if (pending == 0) {
+            row = null;
+        }
+    }
+}
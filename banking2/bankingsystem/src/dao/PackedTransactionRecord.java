@@ -0,0 +1,47 @@
+package dao;
+
+import model.BankTransaction;
+import model.BankTransactionCodec;
+
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.sql.SQLException;
+
+/**
+ * Compact binary layout of a transaction's fields, encrypted as one RSA block
+ * ({@link TransactionDao.EncryptionMode#RSA_PACKED}): a version byte followed by
+ * the {@link BankTransactionCodec} record of the from/to ids, amount and description.
+ * The amount is always present; records written before it had a flag of its own
+ * leave that flag clear, so it is implied on read.
+ * <p>
+ * The version byte is never zero, so the record survives the BigInteger round
+ * trip of RSA unchanged.
+ */
+final class PackedTransactionRecord {
+
+    static final byte VERSION = 1;
+
+    private PackedTransactionRecord() {
+    }
+
+    static byte[] pack(Integer fromAccountId, Integer toAccountId, BigDecimal amount, String description) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        byte[] record = BankTransactionCodec.encode(1, fromAccountId, toAccountId, amount, null,
+                description != null && !description.isEmpty() ? description : null);
+        record[0] = VERSION;
+        return record;
+    }
+
+    static void unpack(byte[] record, BankTransaction t) throws SQLException {
+        if (record.length == 0 || record[0] != VERSION) {
+            throw new SQLException("Unsupported packed record version: " + (record.length == 0 ? "none" : record[0]));
+        }
+        try {
+            BankTransactionCodec.decode(record, 1, BankTransactionCodec.HAS_AMOUNT, t);
+        } catch (BufferUnderflowException | NumberFormatException e) {
+            throw new SQLException("Corrupted packed transaction record", e);
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package dao;
 
+import cache.LruCache;
+import cache.TransactionCache;
 import db.DataSourceManager;
+import db.MigrationCheckpoints;
 import model.BankTransaction;
+import model.TransactionCursor;
+import model.TransactionPage;
+import security.encryption.RSAEncryption;
+import service.DataKeyService;
 import service.RSAKeyService;
 
 import javax.sql.DataSource;
@@ -9,173 +16,918 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TransactionDao {
 
+    /**
+     * How new transaction rows are encrypted. Rows written in either mode stay readable.
+     * RSA: each field is encrypted separately with the current RSA key.
+     * RSA_PACKED: all fields are packed into one record encrypted as a single RSA block
+     * (rows whose description is too long for one block are written as RSA).
+     * ENVELOPE: fields are encrypted with AES-GCM under a data key wrapped once with RSA.
+     */
+    public enum EncryptionMode {
+        RSA,
+        RSA_PACKED,
+        ENVELOPE
+    }
+
+    private static final EncryptionMode WRITE_MODE =
+            EncryptionMode.valueOf(System.getProperty("banking.transactions.encryption", "ENVELOPE").toUpperCase());
+
+    private static final boolean LAZY_DECRYPTION = Boolean.getBoolean("banking.transactions.lazyDecrypt");
+
+    // Lecture des colonnes en clair d'avant le chiffrement ; à désactiver une fois encryptLegacyRows() passé
+    private static final boolean LEGACY_FALLBACK =
+            Boolean.parseBoolean(System.getProperty("banking.transactions.legacyFallback", "true"));
+
     private final RSAKeyService rsaKeyService = new RSAKeyService();
+    private final DataKeyService dataKeyService = new DataKeyService(rsaKeyService);
+    private final DecryptionPipeline decryptionPipeline;
+    private final TransactionCache transactionCache;
+    private final boolean lazyDecryption;
+
+    public TransactionDao() {
+        this(DecryptionPipeline.DEFAULT);
+    }
+
+    public TransactionDao(DecryptionPipeline decryptionPipeline) {
+        this(decryptionPipeline, TransactionCache.shared(), LAZY_DECRYPTION);
+    }
+
+    /**
+     * @param transactionCache decrypted rows by id, or null to always decrypt
+     * @param lazyDecryption   return transactions that decrypt each field on first
+     *                         access instead of decrypting every field up front
+     *                         (defaults to the banking.transactions.lazyDecrypt property)
+     */
+    public TransactionDao(DecryptionPipeline decryptionPipeline, TransactionCache transactionCache,
+                          boolean lazyDecryption) {
+        this.decryptionPipeline = decryptionPipeline;
+        this.transactionCache = transactionCache;
+        this.lazyDecryption = lazyDecryption;
+    }
+
+    /**
+     * Counters of the shared decrypted-transaction cache, or null when it is disabled.
+     */
+    public static LruCache.Stats getTransactionCacheStats() {
+        TransactionCache cache = TransactionCache.shared();
+        return cache != null ? cache.getStats() : null;
+    }
+
+    /**
+     * A ledger row whose ciphertexts and blind indexes are already computed, so it
+     * can be inserted inside a locked section without doing any cryptography there.
+     */
+    public static final class PreparedTransaction {
+        final byte[] fromAccountIdEncrypted;
+        final byte[] toAccountIdEncrypted;
+        final byte[] amountEncrypted;
+        final byte[] descriptionEncrypted;
+        final byte[] recordEncrypted;
+        final String fromAccountIdx;
+        final String toAccountIdx;
+        final EncryptionMode encryptionMode;
+        final byte[] dataKeyEncrypted;
+        final int keyId;
+
+        PreparedTransaction(byte[] fromAccountIdEncrypted, byte[] toAccountIdEncrypted, byte[] amountEncrypted,
+                            byte[] descriptionEncrypted, byte[] recordEncrypted, String fromAccountIdx, String toAccountIdx,
+                            EncryptionMode encryptionMode, byte[] dataKeyEncrypted, int keyId) {
+            this.fromAccountIdEncrypted = fromAccountIdEncrypted;
+            this.toAccountIdEncrypted = toAccountIdEncrypted;
+            this.amountEncrypted = amountEncrypted;
+            this.descriptionEncrypted = descriptionEncrypted;
+            this.recordEncrypted = recordEncrypted;
+            this.fromAccountIdx = fromAccountIdx;
+            this.toAccountIdx = toAccountIdx;
+            this.encryptionMode = encryptionMode;
+            this.dataKeyEncrypted = dataKeyEncrypted;
+            this.keyId = keyId;
+        }
+    }
 
     public void createTransaction(Integer fromAccountId, Integer toAccountId, BigDecimal amount, String description, Connection existingConn) throws SQLException {
-        String sql = """
-                INSERT INTO transactions (from_account_id_encrypted, to_account_id_encrypted, amount_encrypted, description_encrypted)
-                VALUES (?, ?, ?, ?)
-                """;
-        try (PreparedStatement ps = existingConn.prepareStatement(sql)) {
-            // Encrypt account IDs
-            String encryptedFromAccountId = null;
-            if (fromAccountId != null) {
-                encryptedFromAccountId = rsaKeyService.encrypt(String.valueOf(fromAccountId));
-            }
-            ps.setString(1, encryptedFromAccountId);
-            
-            String encryptedToAccountId = null;
-            if (toAccountId != null) {
-                encryptedToAccountId = rsaKeyService.encrypt(String.valueOf(toAccountId));
-            }
-            ps.setString(2, encryptedToAccountId);
-            
-            // Encrypt amount and description
-            String encryptedAmount = rsaKeyService.encryptAmount(amount);
-            String encryptedDescription = description != null ? rsaKeyService.encrypt(description) : null;
-            
-            ps.setString(3, encryptedAmount);
-            ps.setString(4, encryptedDescription);
-            
+        insertTransaction(prepareTransaction(fromAccountId, toAccountId, amount, description), existingConn);
+    }
+
+    /**
+     * Encrypt a ledger row ahead of time. Needs no connection and takes no locks.
+     */
+    public PreparedTransaction prepareTransaction(Integer fromAccountId, Integer toAccountId, BigDecimal amount, String description) throws SQLException {
+        String fromPlain = fromAccountId != null ? String.valueOf(fromAccountId) : null;
+        String toPlain = toAccountId != null ? String.valueOf(toAccountId) : null;
+
+        // Blind indexes allow lookups by account without decrypting
+        String fromIdx = rsaKeyService.blindIndex(fromAccountId);
+        String toIdx = rsaKeyService.blindIndex(toAccountId);
+
+        if (WRITE_MODE == EncryptionMode.RSA_PACKED) {
+            int keyId = rsaKeyService.currentKeyId();
+            byte[] record = PackedTransactionRecord.pack(fromAccountId, toAccountId, amount, description);
+            if (record.length <= rsaKeyService.maxPlaintextBytes(keyId)) {
+                return new PreparedTransaction(null, null, null, null, rsaKeyService.encryptBytes(record, keyId),
+                        fromIdx, toIdx, EncryptionMode.RSA_PACKED, null, keyId);
+            }
+            // Description too long for a single block: one block per field below
+        }
+
+        if (WRITE_MODE == EncryptionMode.ENVELOPE) {
+            if (amount == null) {
+                throw new IllegalArgumentException("Amount is required");
+            }
+            DataKeyService.DataKey dataKey = dataKeyService.currentKey();
+            return new PreparedTransaction(
+                    dataKey.encryptField(fromPlain, "from_account_id"),
+                    dataKey.encryptField(toPlain, "to_account_id"),
+                    dataKey.encryptField(amount.toPlainString(), "amount"),
+                    dataKey.encryptField(description, "description"), null,
+                    fromIdx, toIdx, EncryptionMode.ENVELOPE, dataKey.getWrappedKey(), dataKey.getKeyId());
+        }
+
+        int keyId = rsaKeyService.currentKeyId();
+        return new PreparedTransaction(
+                fromPlain != null ? rsaKeyService.encrypt(fromPlain, keyId) : null,
+                toPlain != null ? rsaKeyService.encrypt(toPlain, keyId) : null,
+                rsaKeyService.encryptAmount(amount, keyId),
+                description != null ? rsaKeyService.encrypt(description, keyId) : null, null,
+                fromIdx, toIdx, EncryptionMode.RSA, null, keyId);
+    }
+
+    // Ciphertexts go to the *_bin columns as raw bytes; the *_encrypted TEXT columns only hold older rows
+    private static final String INSERT_SQL = """
+            INSERT INTO transactions (from_account_id_bin, to_account_id_bin, amount_bin, description_bin,
+                                      record_bin, from_account_idx, to_account_idx, encryption_mode, data_key_bin, key_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    /**
+     * Insert a prepared ledger row on the caller's connection (and transaction).
+     */
+    public void insertTransaction(PreparedTransaction prepared, Connection existingConn) throws SQLException {
+        try (PreparedStatement ps = existingConn.prepareStatement(INSERT_SQL)) {
+            bindInsert(ps, prepared);
             ps.executeUpdate();
         }
     }
+
+    /**
+     * Insert several prepared ledger rows with one JDBC batch, which the driver
+     * rewrites into a multi-row INSERT (rewriteBatchedStatements).
+     */
+    public void insertTransactions(List<PreparedTransaction> prepared, Connection existingConn) throws SQLException {
+        if (prepared.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = existingConn.prepareStatement(INSERT_SQL)) {
+            for (PreparedTransaction row : prepared) {
+                bindInsert(ps, row);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void bindInsert(PreparedStatement ps, PreparedTransaction prepared) throws SQLException {
+        ps.setBytes(1, prepared.fromAccountIdEncrypted);
+        ps.setBytes(2, prepared.toAccountIdEncrypted);
+        ps.setBytes(3, prepared.amountEncrypted);
+        ps.setBytes(4, prepared.descriptionEncrypted);
+        ps.setBytes(5, prepared.recordEncrypted);
+        ps.setString(6, prepared.fromAccountIdx);
+        ps.setString(7, prepared.toAccountIdx);
+        ps.setString(8, prepared.encryptionMode.name());
+        ps.setBytes(9, prepared.dataKeyEncrypted);
+        ps.setInt(10, prepared.keyId);
+    }
     
     public List<BankTransaction> findByAccountId(int accountId) throws SQLException {
-        // Need to decrypt all transactions and filter by account ID
-        String sql = "SELECT * FROM transactions ORDER BY created_at DESC";
-        List<BankTransaction> transactions = new ArrayList<>();
+        // Match on blind indexes so only this account's rows are fetched and decrypted
+        String sql = """
+                SELECT * FROM transactions
+                WHERE from_account_idx = ? OR to_account_idx = ?
+                ORDER BY created_at DESC
+                """;
+        String accountIdx = rsaKeyService.blindIndex(accountId);
+        List<EncryptedRow> rows;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, accountIdx);
+            ps.setString(2, accountIdx);
+            try (ResultSet rs = ps.executeQuery()) {
+                rows = fetchRows(rs, Integer.MAX_VALUE);
+            }
+        }
+        return decryptRows(rows);
+    }
+
+    /**
+     * One page of an account's history, newest first, using keyset pagination on
+     * (created_at, id). Each branch of the UNION walks its blind-index index
+     * (idx_from_account_idx / idx_to_account_idx, which end with the primary key)
+     * backwards and stops after limit + 1 rows, so the cost of a page does not
+     * depend on how much history precedes it.
+     *
+     * @param before cursor returned with the previous page, or null for the newest page
+     */
+    public TransactionPage findPageByAccountId(int accountId, TransactionCursor before, int limit) throws SQLException {
+        String keyset = before != null ? " AND (created_at < ? OR (created_at = ? AND id < ?))" : "";
+        String sql = "(SELECT * FROM transactions WHERE from_account_idx = ?" + keyset
+                + " ORDER BY created_at DESC, id DESC LIMIT ?)"
+                + " UNION "
+                + "(SELECT * FROM transactions WHERE to_account_idx = ?" + keyset
+                + " ORDER BY created_at DESC, id DESC LIMIT ?)"
+                + " ORDER BY created_at DESC, id DESC LIMIT ?";
+        String accountIdx = rsaKeyService.blindIndex(accountId);
+        List<EncryptedRow> rows;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (int branch = 0; branch < 2; branch++) {
+                ps.setString(i++, accountIdx);
+                i = bindCursor(ps, i, before);
+                ps.setInt(i++, limit + 1);
+            }
+            ps.setInt(i, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                rows = fetchRows(rs, limit + 1);
+            }
+        }
+        return toPage(rows, limit);
+    }
+
+    /**
+     * One page of the whole ledger, newest first, walking idx_created_at.
+     */
+    public TransactionPage findPage(TransactionCursor before, int limit) throws SQLException {
+        String sql = "SELECT * FROM transactions"
+                + (before != null ? " WHERE created_at < ? OR (created_at = ? AND id < ?)" : "")
+                + " ORDER BY created_at DESC, id DESC LIMIT ?";
+        List<EncryptedRow> rows;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = bindCursor(ps, 1, before);
+            ps.setInt(i, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                rows = fetchRows(rs, limit + 1);
+            }
+        }
+        return toPage(rows, limit);
+    }
+
+    /**
+     * An account's transactions with from <= created_at < to, newest first.
+     */
+    public List<BankTransaction> findByAccountIdBetween(int accountId, LocalDateTime from, LocalDateTime to) throws SQLException {
+        String sql = """
+                (SELECT * FROM transactions WHERE from_account_idx = ? AND created_at >= ? AND created_at < ?)
+                UNION
+                (SELECT * FROM transactions WHERE to_account_idx = ? AND created_at >= ? AND created_at < ?)
+                ORDER BY created_at DESC, id DESC
+                """;
+        String accountIdx = rsaKeyService.blindIndex(accountId);
+        List<EncryptedRow> rows;
         DataSource dataSource = DataSourceManager.getDataSource();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (int branch = 0; branch < 2; branch++) {
+                ps.setString(i++, accountIdx);
+                ps.setTimestamp(i++, Timestamp.valueOf(from));
+                ps.setTimestamp(i++, Timestamp.valueOf(to));
+            }
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    BankTransaction transaction = mapRow(rs);
-                    // Filter by account ID after decryption
-                    if ((transaction.getFromAccountId() != null && transaction.getFromAccountId().equals(accountId)) ||
-                        (transaction.getToAccountId() != null && transaction.getToAccountId().equals(accountId))) {
-                        transactions.add(transaction);
+                rows = fetchRows(rs, Integer.MAX_VALUE);
+            }
+        }
+        return decryptRows(rows);
+    }
+
+    private static int bindCursor(PreparedStatement ps, int index, TransactionCursor before) throws SQLException {
+        if (before == null) {
+            return index;
+        }
+        Timestamp createdAt = Timestamp.valueOf(before.getCreatedAt());
+        ps.setTimestamp(index, createdAt);
+        ps.setTimestamp(index + 1, createdAt);
+        ps.setInt(index + 2, before.getId());
+        return index + 3;
+    }
+
+    /**
+     * Decrypt up to limit rows; a (limit + 1)th row only tells that another page exists.
+     */
+    private TransactionPage toPage(List<EncryptedRow> rows, int limit) throws SQLException {
+        boolean hasMore = rows.size() > limit;
+        List<BankTransaction> transactions = decryptRows(hasMore ? rows.subList(0, limit) : rows);
+        TransactionCursor next = hasMore ? TransactionCursor.of(transactions.get(transactions.size() - 1)) : null;
+        return new TransactionPage(transactions, next);
+    }
+
+    private static final String BLIND_INDEX_MIGRATION = "backfill_blind_indexes";
+
+    /**
+     * Compute blind indexes for rows written before the index columns existed.
+     * Walks the table by id in small batches; rows are decrypted only once. Each
+     * batch commits together with its progress in data_migrations, so an
+     * interrupted run resumes where it stopped and a finished one returns after a
+     * single checkpoint lookup instead of scanning the table again.
+     * Returns the number of rows updated.
+     */
+    public int backfillBlindIndexes() throws SQLException {
+        String selectSql = """
+                SELECT * FROM transactions
+                WHERE id > ? AND from_account_idx IS NULL AND to_account_idx IS NULL
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE
+                """;
+        String updateSql = "UPDATE transactions SET from_account_idx = ?, to_account_idx = ? WHERE id = ?";
+        int batchSize = 500;
+        int updated = 0;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            int lastId = MigrationCheckpoints.lastId(conn, BLIND_INDEX_MIGRATION);
+            if (lastId == MigrationCheckpoints.COMPLETED) {
+                return 0;
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(selectSql);
+                 PreparedStatement update = conn.prepareStatement(updateSql)) {
+                boolean done = false;
+                while (!done) {
+                    try {
+                        select.setInt(1, lastId);
+                        select.setInt(2, batchSize);
+                        List<EncryptedRow> fetched;
+                        try (ResultSet rs = select.executeQuery()) {
+                            fetched = fetchRows(rs, batchSize);
+                        }
+                        for (BankTransaction t : decryptRows(fetched, false, false)) {
+                            lastId = t.getId();
+                            update.setString(1, rsaKeyService.blindIndex(t.getFromAccountId()));
+                            update.setString(2, rsaKeyService.blindIndex(t.getToAccountId()));
+                            update.setInt(3, t.getId());
+                            update.addBatch();
+                        }
+                        if (!fetched.isEmpty()) {
+                            update.executeBatch();
+                        }
+                        done = fetched.size() < batchSize;
+                        MigrationCheckpoints.save(conn, BLIND_INDEX_MIGRATION, lastId, done);
+                        conn.commit();
+                        updated += fetched.size();
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback();
+                        throw e;
                     }
                 }
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
-        return transactions;
+        if (updated > 0) {
+            System.out.println("✓ Backfilled blind indexes for " + updated + " transactions");
+        }
+        return updated;
+    }
+
+    private static final String LEGACY_MIGRATION = "encrypt_legacy_rows";
+
+    /**
+     * Encrypt the rows written before transactions were encrypted, whose data is
+     * only in the plaintext from_account_id, to_account_id, amount and description
+     * columns. Walks the table by id in batches; each batch is read with FOR UPDATE,
+     * encrypted with the current key and committed together with its progress in
+     * data_migrations, so an interrupted run resumes and a finished one is never
+     * scanned for again. Needs the RSA keys: run it in the background once
+     * {@link service.RSAKeyRing#warmUp()} has completed.
+     * Once it has completed, banking.transactions.legacyFallback=false stops the
+     * DAO from reading those columns at all (they are left in place: migrations
+     * never drop columns). Returns the number of rows encrypted.
+     */
+    public int encryptLegacyRows() throws SQLException {
+        if (!LEGACY_FALLBACK) {
+            return 0;
+        }
+        String selectSql = """
+                SELECT * FROM transactions
+                WHERE id > ? AND amount_bin IS NULL AND amount_encrypted IS NULL
+                  AND record_bin IS NULL AND record_encrypted IS NULL
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE
+                """;
+        int batchSize = 500;
+        int encrypted = 0;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            int lastId = MigrationCheckpoints.lastId(conn, LEGACY_MIGRATION);
+            if (lastId == MigrationCheckpoints.COMPLETED) {
+                return 0;
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(selectSql)) {
+                boolean done = false;
+                while (!done) {
+                    try {
+                        select.setInt(1, lastId);
+                        select.setInt(2, batchSize);
+                        List<EncryptedRow> fetched;
+                        try (ResultSet rs = select.executeQuery()) {
+                            RowMapper mapper = new RowMapper(rs, true);
+                            // Table created after encryption: there is nothing in clear to migrate
+                            fetched = mapper.hasLegacyColumns() ? fetchRows(rs, batchSize, mapper) : List.of();
+                        }
+                        Map<Integer, PreparedTransaction> prepared = new LinkedHashMap<>();
+                        for (BankTransaction t : decryptRows(fetched, false, false)) {
+                            lastId = t.getId();
+                            prepared.put(t.getId(), prepareTransaction(
+                                    t.getFromAccountId(), t.getToAccountId(), t.getAmount(), t.getDescription()));
+                        }
+                        updateEncryption(prepared, conn);
+                        done = fetched.size() < batchSize;
+                        MigrationCheckpoints.save(conn, LEGACY_MIGRATION, lastId, done);
+                        conn.commit();
+                        encrypted += prepared.size();
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback();
+                        throw e;
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        if (encrypted > 0) {
+            System.out.println("✓ Encrypted " + encrypted + " legacy plaintext transactions");
+        }
+        return encrypted;
+    }
+
+    /**
+     * Highest transaction id, or 0 when the ledger is empty.
+     */
+    public int findMaxId() throws SQLException {
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM transactions");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Up to limit decrypted rows with afterId < id <= maxId that are not encrypted
+     * with keyId, in id order. Rows written before key_id existed (NULL) always qualify.
+     * Walks the primary key, so each call costs the same wherever it starts.
+     */
+    public List<BankTransaction> findNotEncryptedWithKey(int keyId, int afterId, int maxId, int limit) throws SQLException {
+        String sql = """
+                SELECT * FROM transactions
+                WHERE id > ? AND id <= ? AND (key_id IS NULL OR key_id <> ?)
+                ORDER BY id
+                LIMIT ?
+                """;
+        List<EncryptedRow> rows;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, maxId);
+            ps.setInt(3, keyId);
+            ps.setInt(4, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                rows = fetchRows(rs, limit);
+            }
+        }
+        return decryptRows(rows, false, false);
+    }
+
+    private static final String REENCRYPT_SQL = """
+            UPDATE transactions
+            SET from_account_id_bin = ?, to_account_id_bin = ?, amount_bin = ?, description_bin = ?,
+                record_bin = ?, from_account_idx = ?, to_account_idx = ?, encryption_mode = ?,
+                data_key_bin = ?, key_id = ?,
+                from_account_id_encrypted = NULL, to_account_id_encrypted = NULL, amount_encrypted = NULL,
+                description_encrypted = NULL, record_encrypted = NULL, data_key_encrypted = NULL
+            WHERE id = ?
+            """;
+
+    /**
+     * Replace the ciphertexts of existing rows (keyed by transaction id) with new
+     * prepared encryptions, in one JDBC batch on the caller's connection.
+     */
+    public void updateEncryption(Map<Integer, PreparedTransaction> rows, Connection existingConn) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = existingConn.prepareStatement(REENCRYPT_SQL)) {
+            for (Map.Entry<Integer, PreparedTransaction> row : rows.entrySet()) {
+                bindInsert(ps, row.getValue());
+                ps.setInt(11, row.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
     }
     
+    /**
+     * Every transaction, decrypted, in one list. For full-ledger scans prefer {@link #streamAll()}.
+     */
     public List<BankTransaction> findAll() throws SQLException {
         String sql = "SELECT * FROM transactions ORDER BY created_at DESC";
-        List<BankTransaction> transactions = new ArrayList<>();
+        List<EncryptedRow> rows;
         DataSource dataSource = DataSourceManager.getDataSource();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    BankTransaction transaction = mapRow(rs);
-                    transactions.add(transaction);
-                }
+                rows = fetchRows(rs, Integer.MAX_VALUE);
             }
         }
-        return transactions;
+        return decryptRows(rows, false, lazyDecryption);
     }
     
-    private BankTransaction mapRow(ResultSet rs) throws SQLException {
-        BankTransaction t = new BankTransaction();
-        t.setId(rs.getInt("id"));
-        
-        // Decrypt account IDs
+    /**
+     * Stream the whole ledger in id order without materializing it. Rows are read
+     * through a forward-only, read-only MySQL streaming result set (fetch size
+     * Integer.MIN_VALUE) and decrypted one at a time as the stream is consumed, so
+     * heap use does not grow with the table.
+     * <p>
+     * The stream holds a pooled connection until it is closed: always use it in a
+     * try-with-resources block. Closing before the end makes the driver drain the
+     * remaining rows. A read or decryption failure surfaces as an
+     * {@link IllegalStateException} wrapping the {@link SQLException}.
+     */
+    public Stream<BankTransaction> streamAll() throws SQLException {
+        String sql = "SELECT * FROM transactions ORDER BY id";
+        DataSource dataSource = DataSourceManager.getDataSource();
+        Connection conn = dataSource.getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs;
+        RowMapper mapper;
         try {
-            String encryptedFromId = rs.getString("from_account_id_encrypted");
-            if (encryptedFromId != null && !encryptedFromId.isEmpty()) {
-                String decryptedFromId = rsaKeyService.decrypt(encryptedFromId);
-                t.setFromAccountId(Integer.parseInt(decryptedFromId));
-            } else {
-                // Try legacy unencrypted column if exists
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            rs = ps.executeQuery();
+            mapper = new RowMapper(rs, LEGACY_FALLBACK);
+        } catch (SQLException e) {
+            closeQuietly(ps, conn);
+            throw e;
+        }
+
+        Spliterator<BankTransaction> rows = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super BankTransaction> action) {
                 try {
-                    Integer fromId = rs.getInt("from_account_id");
-                    if (!rs.wasNull()) {
-                        t.setFromAccountId(fromId);
+                    if (!rs.next()) {
+                        return false;
                     }
+                    EncryptedRow row = mapper.read(rs);
+                    BankTransaction cached = transactionCache != null ? transactionCache.get(row.id) : null;
+                    if (cached != null) {
+                        action.accept(cached);
+                    } else {
+                        action.accept(lazyDecryption ? new LazyBankTransaction(row, TransactionDao.this) : decrypt(row));
+                    }
+                    return true;
                 } catch (SQLException e) {
-                    // Column doesn't exist, leave as null
-                    t.setFromAccountId(null);
+                    throw new IllegalStateException("Failed to read transaction: " + e.getMessage(), e);
                 }
             }
-            
-            String encryptedToId = rs.getString("to_account_id_encrypted");
-            if (encryptedToId != null && !encryptedToId.isEmpty()) {
-                String decryptedToId = rsaKeyService.decrypt(encryptedToId);
-                t.setToAccountId(Integer.parseInt(decryptedToId));
-            } else {
-                // Try legacy unencrypted column if exists
-                try {
-                    Integer toId = rs.getInt("to_account_id");
-                    if (!rs.wasNull()) {
-                        t.setToAccountId(toId);
-                    }
-                } catch (SQLException e) {
-                    // Column doesn't exist, leave as null
-                    t.setToAccountId(null);
+        };
+        PreparedStatement statement = ps;
+        return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(rs, statement, conn));
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("Failed to close " + resource.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A transactions row as fetched, before any decryption. Copying these out of the
+     * result set is cheap, so the connection is released before the CPU-bound
+     * decryption runs (in parallel, through the {@link DecryptionPipeline}).
+     */
+    static final class EncryptedRow {
+        int id;
+        // Raw ciphertexts, whether stored in the *_bin columns or in the older text format
+        byte[] fromAccountIdEncrypted;
+        byte[] toAccountIdEncrypted;
+        byte[] amountEncrypted;
+        byte[] descriptionEncrypted;
+        byte[] recordEncrypted;
+        String encryptionMode;
+        byte[] dataKeyEncrypted;
+        int keyId; // RSAKeyRing.LEGACY_KEY_ID (0) when key_id is NULL
+        LocalDateTime createdAt;
+
+        // Plaintext columns of the pre-encryption schema, when the table still has them
+        boolean hasLegacyAccountIds;
+        boolean hasLegacyAmount;
+        boolean hasLegacyDescription;
+        Integer legacyFromAccountId;
+        Integer legacyToAccountId;
+        BigDecimal legacyAmount;
+        String legacyDescription;
+    }
+
+    /**
+     * Column positions of a transactions result set, resolved once from its
+     * metadata so that every row is read by index. The plaintext columns of the
+     * pre-encryption schema are read only when the table still has them and
+     * legacy is true; the text ciphertext columns are optional too.
+     */
+    static final class RowMapper {
+        private static final String[] CIPHERTEXT_COLUMNS =
+                {"from_account_id", "to_account_id", "amount", "description", "record", "data_key"};
+        private static final int FROM_ACCOUNT_ID = 0;
+        private static final int TO_ACCOUNT_ID = 1;
+        private static final int AMOUNT = 2;
+        private static final int DESCRIPTION = 3;
+        private static final int RECORD = 4;
+        private static final int DATA_KEY = 5;
+
+        private final int id;
+        private final int encryptionMode;
+        private final int keyId;
+        private final int createdAt;
+        private final int[] binary = new int[CIPHERTEXT_COLUMNS.length];
+        private final int[] text = new int[CIPHERTEXT_COLUMNS.length];
+        // 0 when the column is absent or not read
+        private final int legacyFromAccountId;
+        private final int legacyToAccountId;
+        private final int legacyAmount;
+        private final int legacyDescription;
+
+        RowMapper(ResultSet rs, boolean legacy) throws SQLException {
+            ColumnLayout columns = ColumnLayout.of(rs);
+            id = columns.require("id");
+            encryptionMode = columns.require("encryption_mode");
+            keyId = columns.require("key_id");
+            createdAt = columns.require("created_at");
+            for (int i = 0; i < CIPHERTEXT_COLUMNS.length; i++) {
+                binary[i] = columns.require(CIPHERTEXT_COLUMNS[i] + "_bin");
+                text[i] = columns.indexOf(CIPHERTEXT_COLUMNS[i] + "_encrypted");
+            }
+            boolean accountIds = legacy && columns.indexOf("from_account_id") > 0 && columns.indexOf("to_account_id") > 0;
+            legacyFromAccountId = accountIds ? columns.indexOf("from_account_id") : 0;
+            legacyToAccountId = accountIds ? columns.indexOf("to_account_id") : 0;
+            legacyAmount = legacy ? columns.indexOf("amount") : 0;
+            legacyDescription = legacy ? columns.indexOf("description") : 0;
+        }
+
+        boolean hasLegacyColumns() {
+            return legacyFromAccountId > 0 || legacyAmount > 0 || legacyDescription > 0;
+        }
+
+        EncryptedRow read(ResultSet rs) throws SQLException {
+            EncryptedRow row = new EncryptedRow();
+            row.id = rs.getInt(id);
+            row.encryptionMode = rs.getString(encryptionMode);
+            boolean envelope = EncryptionMode.ENVELOPE.name().equals(row.encryptionMode);
+            row.fromAccountIdEncrypted = ciphertext(rs, FROM_ACCOUNT_ID, envelope);
+            row.toAccountIdEncrypted = ciphertext(rs, TO_ACCOUNT_ID, envelope);
+            row.amountEncrypted = ciphertext(rs, AMOUNT, envelope);
+            row.descriptionEncrypted = ciphertext(rs, DESCRIPTION, envelope);
+            row.recordEncrypted = ciphertext(rs, RECORD, false);
+            row.dataKeyEncrypted = ciphertext(rs, DATA_KEY, false);
+            row.keyId = rs.getInt(keyId);
+            Timestamp created = rs.getTimestamp(createdAt);
+            row.createdAt = created != null ? created.toLocalDateTime() : null;
+
+            if (legacyFromAccountId > 0) {
+                row.hasLegacyAccountIds = true;
+                int fromId = rs.getInt(legacyFromAccountId);
+                row.legacyFromAccountId = rs.wasNull() ? null : fromId;
+                int toId = rs.getInt(legacyToAccountId);
+                row.legacyToAccountId = rs.wasNull() ? null : toId;
+            }
+            if (legacyAmount > 0) {
+                row.hasLegacyAmount = true;
+                row.legacyAmount = rs.getBigDecimal(legacyAmount);
+            }
+            if (legacyDescription > 0) {
+                row.hasLegacyDescription = true;
+                row.legacyDescription = rs.getString(legacyDescription);
+            }
+            return row;
+        }
+
+        /**
+         * A ciphertext from its column_bin column, or, for rows not yet migrated, from
+         * column_encrypted: a decimal RSA block, or Base64 for AES-GCM envelope fields.
+         */
+        private byte[] ciphertext(ResultSet rs, int column, boolean base64) throws SQLException {
+            byte[] bytes = rs.getBytes(binary[column]);
+            if (bytes != null || text[column] == 0) {
+                return bytes;
+            }
+            String value = rs.getString(text[column]);
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                return base64 ? Base64.getDecoder().decode(value) : RSAEncryption.decimalToBytes(value);
+            } catch (IllegalArgumentException e) {
+                throw new SQLException("Invalid ciphertext in " + CIPHERTEXT_COLUMNS[column] + "_encrypted: "
+                        + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Copy up to maxRows rows out of the result set without decrypting them.
+     */
+    private static List<EncryptedRow> fetchRows(ResultSet rs, int maxRows) throws SQLException {
+        return fetchRows(rs, maxRows, new RowMapper(rs, LEGACY_FALLBACK));
+    }
+
+    private static List<EncryptedRow> fetchRows(ResultSet rs, int maxRows, RowMapper mapper) throws SQLException {
+        List<EncryptedRow> rows = new ArrayList<>();
+        while (rows.size() < maxRows && rs.next()) {
+            rows.add(mapper.read(rs));
+        }
+        return rows;
+    }
+
+    private List<BankTransaction> decryptRows(List<EncryptedRow> rows) throws SQLException {
+        return decryptRows(rows, true, lazyDecryption);
+    }
+
+    /**
+     * Rows already in the transaction cache are copied from it; only the others go
+     * through the pipeline. Full scans pass populateCache = false so that a pass
+     * over the whole ledger does not evict the rows of the history views.
+     * <p>
+     * With lazy, missing rows come back as {@link LazyBankTransaction}s and nothing
+     * is decrypted here; they are not cached, since caching would decrypt them.
+     */
+    private List<BankTransaction> decryptRows(List<EncryptedRow> rows, boolean populateCache, boolean lazy)
+            throws SQLException {
+        if (transactionCache == null) {
+            return lazy ? lazyRows(rows) : decryptionPipeline.decryptAll(rows, this::decrypt);
+        }
+        List<BankTransaction> transactions = new ArrayList<>(rows.size());
+        List<EncryptedRow> misses = new ArrayList<>();
+        for (EncryptedRow row : rows) {
+            BankTransaction cached = transactionCache.get(row.id);
+            transactions.add(cached);
+            if (cached == null) {
+                misses.add(row);
+            }
+        }
+        if (misses.isEmpty()) {
+            return transactions;
+        }
+        List<BankTransaction> decrypted = lazy ? lazyRows(misses) : decryptionPipeline.decryptAll(misses, this::decrypt);
+        int next = 0;
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.get(i) == null) {
+                BankTransaction t = decrypted.get(next++);
+                if (populateCache && !lazy) {
+                    transactionCache.put(t);
                 }
+                transactions.set(i, t);
+            }
+        }
+        return transactions;
+    }
+
+    private List<BankTransaction> lazyRows(List<EncryptedRow> rows) {
+        List<BankTransaction> transactions = new ArrayList<>(rows.size());
+        for (EncryptedRow row : rows) {
+            transactions.add(new LazyBankTransaction(row, this));
+        }
+        return transactions;
+    }
+
+    private BankTransaction decrypt(EncryptedRow row) throws SQLException {
+        BankTransaction t = new BankTransaction();
+        t.setId(row.id);
+        decryptFields(row, LazyBankTransaction.ALL_FIELDS, t);
+        t.setCreatedAt(row.createdAt);
+        return t;
+    }
+
+    /**
+     * Decrypt the given {@link LazyBankTransaction} field flags of row into t.
+     * Packed rows always set every field.
+     */
+    void decryptFields(EncryptedRow row, int fields, BankTransaction t) throws SQLException {
+        if (EncryptionMode.ENVELOPE.name().equals(row.encryptionMode)) {
+            mapEnvelopeFields(row, fields, t);
+        } else if (EncryptionMode.RSA_PACKED.name().equals(row.encryptionMode)) {
+            if (row.recordEncrypted == null) {
+                throw new SQLException("Packed transaction " + row.id + " has no record");
+            }
+            PackedTransactionRecord.unpack(rsaKeyService.decryptBytes(row.recordEncrypted, row.keyId), t);
+        } else {
+            mapRsaFields(row, fields, t);
+        }
+    }
+
+    private void mapEnvelopeFields(EncryptedRow row, int fields, BankTransaction t) throws SQLException {
+        DataKeyService.DataKey dataKey = dataKeyService.keyFor(row.dataKeyEncrypted, row.keyId);
+        try {
+            if ((fields & LazyBankTransaction.FROM_ACCOUNT_ID) != 0) {
+                String fromId = dataKey.decryptField(row.fromAccountIdEncrypted, "from_account_id");
+                t.setFromAccountId(fromId != null ? Integer.valueOf(fromId) : null);
+            }
+            if ((fields & LazyBankTransaction.TO_ACCOUNT_ID) != 0) {
+                String toId = dataKey.decryptField(row.toAccountIdEncrypted, "to_account_id");
+                t.setToAccountId(toId != null ? Integer.valueOf(toId) : null);
+            }
+            if ((fields & LazyBankTransaction.AMOUNT) != 0) {
+                t.setAmount(new BigDecimal(dataKey.decryptField(row.amountEncrypted, "amount")));
+            }
+            if ((fields & LazyBankTransaction.DESCRIPTION) != 0) {
+                t.setDescription(dataKey.decryptField(row.descriptionEncrypted, "description"));
+            }
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new SQLException("Failed to decrypt transaction data: " + e.getMessage(), e);
+        }
+    }
+
+    private void mapRsaFields(EncryptedRow row, int fields, BankTransaction t) throws SQLException {
+        boolean from = (fields & LazyBankTransaction.FROM_ACCOUNT_ID) != 0;
+        boolean to = (fields & LazyBankTransaction.TO_ACCOUNT_ID) != 0;
+        // Decrypt account IDs
+        try {
+            if (from && row.fromAccountIdEncrypted != null) {
+                String decryptedFromId = rsaKeyService.decrypt(row.fromAccountIdEncrypted, row.keyId);
+                t.setFromAccountId(Integer.parseInt(decryptedFromId));
+            } else if (from && row.hasLegacyAccountIds) {
+                // Legacy unencrypted column
+                t.setFromAccountId(row.legacyFromAccountId);
+            }
+
+            if (to && row.toAccountIdEncrypted != null) {
+                String decryptedToId = rsaKeyService.decrypt(row.toAccountIdEncrypted, row.keyId);
+                t.setToAccountId(Integer.parseInt(decryptedToId));
+            } else if (to && row.hasLegacyAccountIds) {
+                // Legacy unencrypted column
+                t.setToAccountId(row.legacyToAccountId);
             }
         } catch (Exception e) {
+            if (!row.hasLegacyAccountIds) {
+                throw new SQLException("Failed to decrypt transaction data: " + e.getMessage(), e);
+            }
             // If decryption fails, try legacy columns
-            try {
-                Integer fromId = rs.getInt("from_account_id");
-                if (!rs.wasNull()) {
-                    t.setFromAccountId(fromId);
-                }
-                Integer toId = rs.getInt("to_account_id");
-                if (!rs.wasNull()) {
-                    t.setToAccountId(toId);
-                }
-            } catch (SQLException ex) {
-                // Legacy columns don't exist, leave as null
+            if (from && row.legacyFromAccountId != null) {
+                t.setFromAccountId(row.legacyFromAccountId);
+            }
+            if (to && row.legacyToAccountId != null) {
+                t.setToAccountId(row.legacyToAccountId);
             }
         }
-        
+
         // Decrypt amount and description
         try {
-            String encryptedAmount = rs.getString("amount_encrypted");
-            if (encryptedAmount != null && !encryptedAmount.isEmpty()) {
-                BigDecimal decryptedAmount = rsaKeyService.decryptAmount(encryptedAmount);
-                t.setAmount(decryptedAmount);
-            } else {
-                // Try legacy unencrypted column if exists
-                try {
-                    t.setAmount(rs.getBigDecimal("amount"));
-                } catch (SQLException e) {
+            if ((fields & LazyBankTransaction.AMOUNT) != 0) {
+                if (row.amountEncrypted != null) {
+                    t.setAmount(rsaKeyService.decryptAmount(row.amountEncrypted, row.keyId));
+                } else if (row.hasLegacyAmount) {
+                    // Legacy unencrypted column
+                    t.setAmount(row.legacyAmount);
+                } else {
                     throw new SQLException("No encrypted or unencrypted amount found");
                 }
             }
-            
-            String encryptedDescription = rs.getString("description_encrypted");
-            if (encryptedDescription != null && !encryptedDescription.isEmpty()) {
-                String decryptedDescription = rsaKeyService.decrypt(encryptedDescription);
-                t.setDescription(decryptedDescription);
-            } else {
-                // Try legacy unencrypted column if exists
-                try {
-                    t.setDescription(rs.getString("description"));
-                } catch (SQLException e) {
-                    // Description is optional
-                    t.setDescription(null);
+
+            if ((fields & LazyBankTransaction.DESCRIPTION) != 0) {
+                if (row.descriptionEncrypted != null) {
+                    t.setDescription(rsaKeyService.decrypt(row.descriptionEncrypted, row.keyId));
+                } else {
+                    // Legacy unencrypted column if it exists; description is optional
+                    t.setDescription(row.hasLegacyDescription ? row.legacyDescription : null);
                 }
             }
         } catch (Exception e) {
             throw new SQLException("Failed to decrypt transaction data: " + e.getMessage(), e);
         }
-        
-        Timestamp createdAt = rs.getTimestamp("created_at");
-        if (createdAt != null) {
-            t.setCreatedAt(createdAt.toLocalDateTime());
-        }
-        
-        return t;
     }
 }
-
-
@@ -20,7 +20,7 @@ public class UserDao {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return mapRow(rs);
+                    return new RowMapper(rs).map(rs);
                 }
                 return null;
             }
@@ -65,27 +65,47 @@ public class UserDao {
             ps.setString(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return mapRow(rs);
+                    return new RowMapper(rs).map(rs);
                 }
                 return null;
             }
         }
     }
 
-    private User mapRow(ResultSet rs) throws SQLException {
-        User u = new User();
-        u.setId(rs.getInt("id"));
-        u.setUsername(rs.getString("username"));
-        u.setPasswordHash(rs.getString("password_hash"));
-        u.setPasswordSalt(rs.getString("password_salt"));
-        u.setPinHash(rs.getString("pin_hash"));
-        u.setPinSalt(rs.getString("pin_salt"));
-        String userId = rs.getString("user_id");
-        if (rs.wasNull()) {
-            userId = null;
+    /**
+     * Reads users rows by column index, resolved once per result set.
+     */
+    private static final class RowMapper {
+        private final int id;
+        private final int username;
+        private final int passwordHash;
+        private final int passwordSalt;
+        private final int pinHash;
+        private final int pinSalt;
+        private final int userId;
+
+        RowMapper(ResultSet rs) throws SQLException {
+            ColumnLayout columns = ColumnLayout.of(rs);
+            id = columns.require("id");
+            username = columns.require("username");
+            passwordHash = columns.require("password_hash");
+            passwordSalt = columns.require("password_salt");
+            pinHash = columns.require("pin_hash");
+            pinSalt = columns.require("pin_salt");
+            userId = columns.require("user_id");
+        }
+
+        User map(ResultSet rs) throws SQLException {
+            User u = new User();
+            u.setId(rs.getInt(id));
+            u.setUsername(rs.getString(username));
+            u.setPasswordHash(rs.getString(passwordHash));
+            u.setPasswordSalt(rs.getString(passwordSalt));
+            u.setPinHash(rs.getString(pinHash));
+            u.setPinSalt(rs.getString(pinSalt));
+            u.setUserId(rs.getString(userId));
+            return u;
         }
-        u.setUserId(userId);
-        return u;
     }
 }
 
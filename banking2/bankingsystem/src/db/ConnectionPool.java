@@ -0,0 +1,402 @@
+package db;
+
+import metrics.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool in front of a physical DataSource.
+ * <p>
+ * Borrowed connections are handed out as proxies whose {@code close()} returns the
+ * physical connection to the pool. The pool keeps between {@code minIdle} and
+ * {@code maxSize} physical connections, validates idle connections on borrow,
+ * evicts connections that stay idle too long, bounds how long a caller may wait
+ * and reports connections held longer than the leak detection threshold.
+ */
+public final class ConnectionPool implements DataSource, AutoCloseable {
+
+    /**
+     * Pool sizing and timeout settings.
+     */
+    public static final class Config {
+        public final int minIdle;
+        public final int maxSize;
+        public final long borrowTimeoutMillis;
+        public final long idleTimeoutMillis;
+        public final long maxLifetimeMillis;
+        public final long validationIntervalMillis;
+        public final long leakDetectionThresholdMillis; // 0 disables leak detection
+
+        public Config(int minIdle, int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis,
+                      long maxLifetimeMillis, long validationIntervalMillis, long leakDetectionThresholdMillis) {
+            if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+                throw new IllegalArgumentException("Invalid pool size: min=" + minIdle + ", max=" + maxSize);
+            }
+            this.minIdle = minIdle;
+            this.maxSize = maxSize;
+            this.borrowTimeoutMillis = borrowTimeoutMillis;
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.maxLifetimeMillis = maxLifetimeMillis;
+            this.validationIntervalMillis = validationIntervalMillis;
+            this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        }
+    }
+
+    /**
+     * Point-in-time view of the pool, used to size it under load.
+     */
+    public static final class Stats {
+        public final int total;
+        public final int active;
+        public final int idle;
+        public final int waiters;
+        public final long borrows;
+        public final long timeouts;
+        public final long created;
+        public final long evicted;
+        public final long leaksDetected;
+        public final LatencyHistogram waitTime;
+
+        Stats(int total, int active, int idle, int waiters, long borrows, long timeouts,
+              long created, long evicted, long leaksDetected, LatencyHistogram waitTime) {
+            this.total = total;
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.evicted = evicted;
+            this.leaksDetected = leaksDetected;
+            this.waitTime = waitTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("total=%d active=%d idle=%d waiters=%d borrows=%d timeouts=%d created=%d evicted=%d leaks=%d wait[%s]",
+                    total, active, idle, waiters, borrows, timeouts, created, evicted, leaksDetected, waitTime);
+        }
+    }
+
+    private static final class PooledConnection {
+        final Connection physical;
+        final long createdAt;
+        volatile long lastUsedAt;
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    private final DataSource physicalDataSource;
+    private final Config config;
+
+    // LIFO so the most recently used (warmest) connection is handed out first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    public ConnectionPool(DataSource physicalDataSource, Config config) {
+        this.physicalDataSource = physicalDataSource;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + config.borrowTimeoutMillis + "ms waiting for a database connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection entry = takeValidIdle();
+            if (entry == null) {
+                entry = createPhysical();
+            }
+            waitTime.record(System.nanoTime() - start);
+            borrows.increment();
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.leakReported = false;
+            entry.borrowSite = config.leakDetectionThresholdMillis > 0
+                    ? new Throwable("Connection borrowed here") : null;
+            borrowed.add(entry);
+            return wrap(entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    public Stats getStats() {
+        int active = borrowed.size();
+        int idleCount = idle.size();
+        return new Stats(total.get(), active, idleCount, permits.getQueueLength(),
+                borrows.sum(), timeouts.sum(), created.sum(), evicted.sum(), leaksDetected.sum(), waitTime);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+        // Borrowed connections are destroyed as they are returned
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (isExpired(entry, now)) {
+                destroy(entry);
+                evicted.increment();
+                continue;
+            }
+            if (now - entry.lastUsedAt < config.validationIntervalMillis || isValid(entry)) {
+                return entry;
+            }
+            destroy(entry);
+            evicted.increment();
+        }
+        return null;
+    }
+
+    private PooledConnection createPhysical() throws SQLException {
+        Connection physical = physicalDataSource.getConnection();
+        total.incrementAndGet();
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isValid(PooledConnection entry) {
+        try {
+            return entry.physical.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection entry, long now) {
+        return config.maxLifetimeMillis > 0 && now - entry.createdAt > config.maxLifetimeMillis;
+    }
+
+    private void release(PooledConnection entry) {
+        if (!borrowed.remove(entry)) {
+            return; // already returned
+        }
+        entry.borrowSite = null;
+        entry.lastUsedAt = System.currentTimeMillis();
+        try {
+            boolean reusable = !closed && !entry.physical.isClosed() && !isExpired(entry, entry.lastUsedAt);
+            if (reusable) {
+                // Never hand out a connection with a half-finished transaction
+                if (!entry.physical.getAutoCommit()) {
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+                idle.offerFirst(entry);
+            } else {
+                destroy(entry);
+            }
+        } catch (SQLException e) {
+            destroy(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection entry) {
+        total.decrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException ignored) {
+            // Connection is being discarded anyway
+        }
+    }
+
+    /**
+     * Periodic maintenance: evict idle and expired connections, top up to minIdle
+     * and report connections held longer than the leak detection threshold.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        // release() pushes to the head, so the tail holds the least recently used connections.
+        // Walk from there: idle-timeout eviction stops at minIdle idle connections; expired
+        // connections are always evicted (the top-up below replaces them)
+        Iterator<PooledConnection> coldestFirst = idle.descendingIterator();
+        while (coldestFirst.hasNext()) {
+            PooledConnection entry = coldestFirst.next();
+            boolean idleTooLong = config.idleTimeoutMillis > 0
+                    && now - entry.lastUsedAt > config.idleTimeoutMillis
+                    && idle.size() > config.minIdle;
+            if ((idleTooLong || isExpired(entry, now)) && idle.remove(entry)) {
+                destroy(entry);
+                evicted.increment();
+            }
+        }
+
+        while (idle.size() < config.minIdle && total.get() < config.maxSize && permits.tryAcquire()) {
+            try {
+                idle.offerLast(createPhysical());
+            } catch (SQLException e) {
+                System.err.println("Connection pool: failed to pre-open connection: " + e.getMessage());
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+
+        if (config.leakDetectionThresholdMillis > 0) {
+            for (PooledConnection entry : borrowed) {
+                if (!entry.leakReported && now - entry.borrowedAt > config.leakDetectionThresholdMillis) {
+                    entry.leakReported = true;
+                    leaksDetected.increment();
+                    System.err.println("⚠ Connection pool: possible connection leak, held for "
+                            + (now - entry.borrowedAt) + "ms");
+                    Throwable site = entry.borrowSite;
+                    if (site != null) {
+                        site.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    private Connection wrap(PooledConnection entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            release(entry);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || entry.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled[" + entry.physical + "]";
+                    default:
+                        if (returned) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                        try {
+                            return method.invoke(entry.physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return physicalDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        physicalDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        physicalDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return physicalDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return physicalDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return physicalDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || physicalDataSource.isWrapperFor(iface);
+    }
+}
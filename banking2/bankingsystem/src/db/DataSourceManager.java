@@ -7,11 +7,12 @@ import java.sql.SQLException;
 
 /**
  * Manages the DataSource for database connections.
- * Uses MySQL's built-in connection pooling via MysqlDataSource.
+ * The main database is served through a bounded {@link ConnectionPool};
+ * MysqlDataSource itself opens a new physical connection on every call.
  */
 public final class DataSourceManager {
 
-    private static volatile DataSource dataSource;
+    private static volatile ConnectionPool dataSource;
     private static volatile DataSource dataSourceWithoutDb;
 
     /**
@@ -22,13 +23,27 @@ public final class DataSourceManager {
         if (dataSource == null) {
             synchronized (DataSourceManager.class) {
                 if (dataSource == null) {
-                    dataSource = createDataSource(true);
+                    dataSource = new ConnectionPool(createDataSource(true), new ConnectionPool.Config(
+                            DatabaseConfig.POOL_MIN_IDLE,
+                            DatabaseConfig.POOL_MAX_SIZE,
+                            DatabaseConfig.POOL_BORROW_TIMEOUT_MS,
+                            DatabaseConfig.POOL_IDLE_TIMEOUT_MS,
+                            DatabaseConfig.POOL_MAX_LIFETIME_MS,
+                            DatabaseConfig.POOL_VALIDATION_INTERVAL_MS,
+                            DatabaseConfig.POOL_LEAK_DETECTION_MS));
                 }
             }
         }
         return dataSource;
     }
 
+    /**
+     * Statistics of the main connection pool (active, idle, waiters, wait times).
+     */
+    public static ConnectionPool.Stats getPoolStats() throws SQLException {
+        return ((ConnectionPool) getDataSource()).getStats();
+    }
+
     /**
      * Get the DataSource without a specific database (for creating databases).
      * Thread-safe singleton pattern.
@@ -84,6 +99,9 @@ public final class DataSourceManager {
      */
     public static void reset() {
         synchronized (DataSourceManager.class) {
+            if (dataSource != null) {
+                dataSource.close();
+            }
             dataSource = null;
             dataSourceWithoutDb = null;
         }
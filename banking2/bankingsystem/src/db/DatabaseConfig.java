@@ -16,6 +16,16 @@ public final class DatabaseConfig {
     public static final String JDBC_USER = getEnvOrDefault("DB_USER", DEFAULT_USER);
     public static final String JDBC_PASSWORD = getEnvOrDefault("DB_PASS", DEFAULT_PASSWORD);
 
+    // Connection pool settings (override with DB_POOL_* environment variables)
+    public static final int POOL_MIN_IDLE = getIntEnvOrDefault("DB_POOL_MIN_IDLE", 2);
+    public static final int POOL_MAX_SIZE = getIntEnvOrDefault("DB_POOL_MAX_SIZE", 10);
+    public static final long POOL_BORROW_TIMEOUT_MS = getIntEnvOrDefault("DB_POOL_BORROW_TIMEOUT_MS", 5_000);
+    public static final long POOL_IDLE_TIMEOUT_MS = getIntEnvOrDefault("DB_POOL_IDLE_TIMEOUT_MS", 300_000);
+    public static final long POOL_MAX_LIFETIME_MS = getIntEnvOrDefault("DB_POOL_MAX_LIFETIME_MS", 1_800_000);
+    public static final long POOL_VALIDATION_INTERVAL_MS = getIntEnvOrDefault("DB_POOL_VALIDATION_INTERVAL_MS", 5_000);
+    // 0 = off; when on, every borrow captures a stack trace for the leak report
+    public static final long POOL_LEAK_DETECTION_MS = getIntEnvOrDefault("DB_POOL_LEAK_DETECTION_MS", 0);
+
     private static String getEnvOrDefault(String envVar, String defaultValue) {
         String value = System.getenv(envVar);
         if (value == null || value.isEmpty()) {
@@ -25,6 +35,19 @@ public final class DatabaseConfig {
         return value;
     }
 
+    private static int getIntEnvOrDefault(String envVar, int defaultValue) {
+        String value = System.getenv(envVar);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Warning: Environment variable " + envVar + " is not a number. Using default value.");
+            return defaultValue;
+        }
+    }
+
     public static String getJdbcUrlWithDb() {
         return "jdbc:mysql://127.0.0.1:3306/" + DB_NAME + "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
     }
@@ -1,11 +1,14 @@
 package db;
 
+import security.encryption.RSAEncryption;
+
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Base64;
 
 public final class DatabaseInitializer {
 
@@ -70,10 +73,24 @@ public final class DatabaseInitializer {
                         id INT AUTO_INCREMENT PRIMARY KEY,
                         from_account_id_encrypted TEXT,
                         to_account_id_encrypted TEXT,
-                        amount_encrypted TEXT NOT NULL,
+                        amount_encrypted TEXT,
                         description_encrypted TEXT,
+                        record_encrypted TEXT,
+                        from_account_id_bin VARBINARY(512),
+                        to_account_id_bin VARBINARY(512),
+                        amount_bin VARBINARY(512),
+                        description_bin VARBINARY(1024),
+                        record_bin VARBINARY(1024),
+                        data_key_bin VARBINARY(512),
+                        from_account_idx CHAR(64),
+                        to_account_idx CHAR(64),
+                        encryption_mode VARCHAR(16) NOT NULL DEFAULT 'RSA',
+                        data_key_encrypted TEXT,
+                        key_id INT,
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                        INDEX idx_created_at (created_at)
+                        INDEX idx_created_at (created_at),
+                        INDEX idx_from_account_idx (from_account_idx, created_at),
+                        INDEX idx_to_account_idx (to_account_idx, created_at)
                     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
                     """;
 
@@ -85,11 +102,37 @@ public final class DatabaseInitializer {
                         public_key_modulus TEXT NOT NULL,
                         public_key_exponent TEXT NOT NULL,
                         private_key_exponent TEXT NOT NULL,
+                        prime_p TEXT,
+                        prime_q TEXT,
+                        prime_exponent_p TEXT,
+                        prime_exponent_q TEXT,
+                        crt_coefficient TEXT,
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                         INDEX idx_key_name (key_name)
                     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
                     """;
 
+            // Key rotation checkpoints: how far re-encryption under each new key has got
+            String createKeyRotationCheckpoints = """
+                    CREATE TABLE IF NOT EXISTS key_rotation_checkpoints (
+                        target_key_id INT PRIMARY KEY,
+                        last_id INT NOT NULL DEFAULT 0,
+                        rows_reencrypted BIGINT NOT NULL DEFAULT 0,
+                        completed_at TIMESTAMP NULL,
+                        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+                    """;
+
+            // One-shot data migrations: progress and completion, so finished ones are never re-run
+            String createDataMigrations = """
+                    CREATE TABLE IF NOT EXISTS data_migrations (
+                        name VARCHAR(64) PRIMARY KEY,
+                        last_id INT NOT NULL DEFAULT 0,
+                        completed_at TIMESTAMP NULL,
+                        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+                    """;
+
             statement.executeUpdate(createUsers);
             System.out.println("✓ Table 'users' verified/created");
 
@@ -101,6 +144,12 @@ public final class DatabaseInitializer {
 
             statement.executeUpdate(createRSAKeys);
             System.out.println("✓ Table 'rsa_keys' verified/created");
+
+            statement.executeUpdate(createKeyRotationCheckpoints);
+            System.out.println("✓ Table 'key_rotation_checkpoints' verified/created");
+
+            statement.executeUpdate(createDataMigrations);
+            System.out.println("✓ Table 'data_migrations' verified/created");
         }
     }
 
@@ -149,10 +198,222 @@ public final class DatabaseInitializer {
                 }
             }
 
+            // Migration 3: Blind index columns so history lookups don't decrypt the whole table
+            if (!columnExists(connection, "transactions", "from_account_idx")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("ALTER TABLE transactions ADD COLUMN from_account_idx CHAR(64)");
+                    statement.executeUpdate("CREATE INDEX idx_from_account_idx ON transactions(from_account_idx, created_at)");
+                    System.out.println("✓ Migration: Added 'from_account_idx' column");
+                }
+            }
+
+            if (!columnExists(connection, "transactions", "to_account_idx")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("ALTER TABLE transactions ADD COLUMN to_account_idx CHAR(64)");
+                    statement.executeUpdate("CREATE INDEX idx_to_account_idx ON transactions(to_account_idx, created_at)");
+                    System.out.println("✓ Migration: Added 'to_account_idx' column");
+                }
+            }
+
+            // Migration 4: CRT parameters for faster RSA decryption (existing keys are
+            // completed by RSAKeyService the first time they are loaded)
+            for (String column : new String[]{"prime_p", "prime_q", "prime_exponent_p", "prime_exponent_q", "crt_coefficient"}) {
+                if (!columnExists(connection, "rsa_keys", column)) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate("ALTER TABLE rsa_keys ADD COLUMN " + column + " TEXT");
+                        System.out.println("✓ Migration: Added '" + column + "' column to rsa_keys table");
+                    }
+                }
+            }
+
+            // Migration 5: Envelope encryption (AES-GCM data key wrapped with RSA)
+            if (!columnExists(connection, "transactions", "encryption_mode")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("ALTER TABLE transactions ADD COLUMN encryption_mode VARCHAR(16) NOT NULL DEFAULT 'RSA'");
+                    System.out.println("✓ Migration: Added 'encryption_mode' column");
+                }
+            }
+
+            if (!columnExists(connection, "transactions", "data_key_encrypted")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("ALTER TABLE transactions ADD COLUMN data_key_encrypted TEXT");
+                    System.out.println("✓ Migration: Added 'data_key_encrypted' column");
+                }
+            }
+
+            // Migration 6: Id of the rsa_keys row each transaction was encrypted with (NULL = system key)
+            if (!columnExists(connection, "transactions", "key_id")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("ALTER TABLE transactions ADD COLUMN key_id INT");
+                    System.out.println("✓ Migration: Added 'key_id' column");
+                }
+            }
+
+            // Migration 7: Packed single-block records (RSA_PACKED); those rows have no amount_encrypted
+            if (!columnExists(connection, "transactions", "record_encrypted")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("ALTER TABLE transactions ADD COLUMN record_encrypted TEXT");
+                    System.out.println("✓ Migration: Added 'record_encrypted' column");
+                }
+            }
+
+            if (!columnIsNullable(connection, "transactions", "amount_encrypted")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("ALTER TABLE transactions MODIFY amount_encrypted TEXT NULL");
+                    System.out.println("✓ Migration: 'amount_encrypted' is now nullable");
+                }
+            }
+
+            // Migration 8: Ciphertexts as raw bytes in VARBINARY columns instead of decimal/Base64 text
+            for (String[] column : BINARY_CIPHERTEXT_COLUMNS) {
+                if (!columnExists(connection, "transactions", column[0] + "_bin")) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate("ALTER TABLE transactions ADD COLUMN " + column[0] + "_bin " + column[1]);
+                        System.out.println("✓ Migration: Added '" + column[0] + "_bin' column");
+                    }
+                }
+            }
+            convertTextCiphertexts(connection);
+
             System.out.println("✓ Schema migrations completed");
         }
     }
 
+    /**
+     * Ciphertext columns stored as bytes: {base name, type}. RSA blocks are as long as
+     * the modulus (256 bytes for RSA-2048, up to 512 for RSA-4096); envelope
+     * descriptions and packed records get more room.
+     */
+    private static final String[][] BINARY_CIPHERTEXT_COLUMNS = {
+            {"from_account_id", "VARBINARY(512)"},
+            {"to_account_id", "VARBINARY(512)"},
+            {"amount", "VARBINARY(512)"},
+            {"description", "VARBINARY(1024)"},
+            {"record", "VARBINARY(1024)"},
+            {"data_key", "VARBINARY(512)"}
+    };
+
+    private static final int CONVERSION_BATCH_SIZE = 500;
+    private static final String CONVERSION_MIGRATION = "binary_ciphertexts";
+
+    /**
+     * Data part of migration 8: move the ciphertexts of older rows from the
+     * *_encrypted TEXT columns to the *_bin columns and clear the text. Rows are
+     * walked by primary key in small batches. Each batch is read with FOR UPDATE
+     * and written in the same transaction, so a writer re-encrypting a row at the
+     * same time (KeyRotationJob, possibly in another instance) either runs before
+     * the batch, and the row no longer has text to convert, or waits for it.
+     * No key is needed: a decimal RSA block becomes its big-endian bytes, a Base64
+     * AES-GCM field its decoded bytes.
+     * <p>
+     * Progress is kept in data_migrations: an interrupted conversion resumes, and
+     * once it has completed it is never scanned for again (no *_encrypted column
+     * is indexed, so each scan reads the whole table).
+     */
+    private static void convertTextCiphertexts(Connection connection) throws SQLException {
+        int lastId = MigrationCheckpoints.lastId(connection, CONVERSION_MIGRATION);
+        if (lastId == MigrationCheckpoints.COMPLETED) {
+            return;
+        }
+        String selectSql = """
+                SELECT id, encryption_mode, from_account_id_encrypted, to_account_id_encrypted, amount_encrypted,
+                       description_encrypted, record_encrypted, data_key_encrypted
+                FROM transactions
+                WHERE id > ? AND (from_account_id_encrypted IS NOT NULL OR to_account_id_encrypted IS NOT NULL
+                                  OR amount_encrypted IS NOT NULL OR description_encrypted IS NOT NULL
+                                  OR record_encrypted IS NOT NULL OR data_key_encrypted IS NOT NULL)
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE
+                """;
+        String updateSql = """
+                UPDATE transactions
+                SET from_account_id_bin = COALESCE(?, from_account_id_bin), to_account_id_bin = COALESCE(?, to_account_id_bin),
+                    amount_bin = COALESCE(?, amount_bin), description_bin = COALESCE(?, description_bin),
+                    record_bin = COALESCE(?, record_bin), data_key_bin = COALESCE(?, data_key_bin),
+                    from_account_id_encrypted = NULL, to_account_id_encrypted = NULL, amount_encrypted = NULL,
+                    description_encrypted = NULL, record_encrypted = NULL, data_key_encrypted = NULL
+                WHERE id = ?
+                """;
+        int converted = 0;
+        connection.setAutoCommit(false);
+        try (PreparedStatement select = connection.prepareStatement(selectSql);
+             PreparedStatement update = connection.prepareStatement(updateSql)) {
+            boolean done = false;
+            while (!done) {
+                int rows = 0;
+                try {
+                    select.setInt(1, lastId);
+                    select.setInt(2, CONVERSION_BATCH_SIZE);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            lastId = rs.getInt("id");
+                            boolean envelope = "ENVELOPE".equals(rs.getString("encryption_mode"));
+                            update.setBytes(1, textToBytes(rs.getString("from_account_id_encrypted"), envelope));
+                            update.setBytes(2, textToBytes(rs.getString("to_account_id_encrypted"), envelope));
+                            update.setBytes(3, textToBytes(rs.getString("amount_encrypted"), envelope));
+                            update.setBytes(4, textToBytes(rs.getString("description_encrypted"), envelope));
+                            update.setBytes(5, textToBytes(rs.getString("record_encrypted"), false));
+                            update.setBytes(6, textToBytes(rs.getString("data_key_encrypted"), false));
+                            update.setInt(7, lastId);
+                            update.addBatch();
+                        }
+                    }
+                    if (rows > 0) {
+                        update.executeBatch();
+                    }
+                    done = rows < CONVERSION_BATCH_SIZE;
+                    MigrationCheckpoints.save(connection, CONVERSION_MIGRATION, lastId, done);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+                converted += rows;
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        if (converted > 0) {
+            System.out.println("✓ Migration: Converted " + converted + " transactions to binary ciphertexts");
+        }
+    }
+
+    private static byte[] textToBytes(String text, boolean base64) throws SQLException {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            return base64 ? Base64.getDecoder().decode(text) : RSAEncryption.decimalToBytes(text);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Invalid text ciphertext: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check if a column accepts NULL
+     */
+    private static boolean columnIsNullable(Connection connection, String tableName, String columnName) throws SQLException {
+        String query = """
+            SELECT IS_NULLABLE
+            FROM INFORMATION_SCHEMA.COLUMNS
+            WHERE TABLE_SCHEMA = ?
+            AND TABLE_NAME = ?
+            AND COLUMN_NAME = ?
+            """;
+
+        try (PreparedStatement ps = connection.prepareStatement(query)) {
+            ps.setString(1, DatabaseConfig.DB_NAME);
+            ps.setString(2, tableName);
+            ps.setString(3, columnName);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && "YES".equals(rs.getString("IS_NULLABLE"));
+            }
+        }
+    }
+
     /**
      * Check if a column exists in a table (thread-safe)
      */
@@ -0,0 +1,56 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Progress of the one-shot data migrations (table data_migrations), keyed by
+ * migration name. A migration interrupted midway resumes after the last id it
+ * committed; a finished one is skipped with a single primary-key lookup instead
+ * of scanning the table again on every start.
+ */
+public final class MigrationCheckpoints {
+
+    /**
+     * {@link #lastId} of a migration that has already completed.
+     */
+    public static final int COMPLETED = -1;
+
+    private MigrationCheckpoints() {
+    }
+
+    /**
+     * The last id the named migration committed (0 if it never ran), or {@link #COMPLETED}.
+     */
+    public static int lastId(Connection connection, String name) throws SQLException {
+        String sql = "SELECT last_id, completed_at FROM data_migrations WHERE name = ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return 0;
+                }
+                return rs.getTimestamp(2) != null ? COMPLETED : rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Record progress on the caller's connection, so it commits together with the batch it describes.
+     */
+    public static void save(Connection connection, String name, int lastId, boolean done) throws SQLException {
+        String sql = """
+                INSERT INTO data_migrations (name, last_id, completed_at)
+                VALUES (?, ?, IF(?, CURRENT_TIMESTAMP, NULL))
+                ON DUPLICATE KEY UPDATE last_id = VALUES(last_id), completed_at = VALUES(completed_at)
+                """;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, name);
+            ps.setInt(2, lastId);
+            ps.setBoolean(3, done);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary layout of a {@link BankTransaction}'s fields, shared by the
+ * packed RSA record (dao.PackedTransactionRecord) and the off-heap transaction
+ * cache:
+ * <pre>
+ * flags (1) | from id (4)? | to id (4)? | amount scale (1) + length (1) + unscaled, two's complement (length)?
+ *           | created at seconds (8) + nanos (4)? | description, UTF-8 (rest)?
+ * </pre>
+ * The id is not part of the record. Callers may reserve a header in front of it
+ * (the packed record's version byte).
+ */
+public final class BankTransactionCodec {
+
+    public static final int HAS_FROM = 1;
+    public static final int HAS_TO = 2;
+    public static final int HAS_DESCRIPTION = 4;
+    public static final int HAS_AMOUNT = 8;
+    public static final int HAS_CREATED_AT = 16;
+
+    private BankTransactionCodec() {
+    }
+
+    /**
+     * Encode the non-null fields after headerBytes zero bytes left for the caller.
+     *
+     * @throws IllegalArgumentException if the amount's scale or precision does not fit the layout
+     */
+    public static byte[] encode(int headerBytes, Integer fromAccountId, Integer toAccountId, BigDecimal amount,
+                                LocalDateTime createdAt, String description) {
+        byte[] unscaled = null;
+        if (amount != null) {
+            if (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Amount scale out of range: " + amount.scale());
+            }
+            unscaled = amount.unscaledValue().toByteArray();
+            if (unscaled.length > 255) {
+                throw new IllegalArgumentException("Amount too large to pack");
+            }
+        }
+        byte[] text = description != null ? description.getBytes(StandardCharsets.UTF_8) : null;
+
+        int flags = (fromAccountId != null ? HAS_FROM : 0)
+                | (toAccountId != null ? HAS_TO : 0)
+                | (unscaled != null ? HAS_AMOUNT : 0)
+                | (createdAt != null ? HAS_CREATED_AT : 0)
+                | (text != null ? HAS_DESCRIPTION : 0);
+        int length = headerBytes + 1 + (fromAccountId != null ? 4 : 0) + (toAccountId != null ? 4 : 0)
+                + (unscaled != null ? 2 + unscaled.length : 0)
+                + (createdAt != null ? 12 : 0)
+                + (text != null ? text.length : 0);
+
+        ByteBuffer out = ByteBuffer.allocate(length);
+        out.position(headerBytes);
+        out.put((byte) flags);
+        if (fromAccountId != null) {
+            out.putInt(fromAccountId);
+        }
+        if (toAccountId != null) {
+            out.putInt(toAccountId);
+        }
+        if (unscaled != null) {
+            out.put((byte) amount.scale()).put((byte) unscaled.length).put(unscaled);
+        }
+        if (createdAt != null) {
+            out.putLong(createdAt.toEpochSecond(ZoneOffset.UTC)).putInt(createdAt.getNano());
+        }
+        if (text != null) {
+            out.put(text);
+        }
+        return out.array();
+    }
+
+    /**
+     * Decode the record starting at record[offset] into t. Absent fields are set
+     * to null, except the creation time, which is left as is (packed records do
+     * not store it: the row does). impliedFlags are OR-ed into the stored flags,
+     * for layouts where a field is always present without its flag.
+     *
+     * @throws java.nio.BufferUnderflowException if the record is truncated
+     */
+    public static void decode(byte[] record, int offset, int impliedFlags, BankTransaction t) {
+        ByteBuffer in = ByteBuffer.wrap(record, offset, record.length - offset);
+        int flags = in.get() | impliedFlags;
+        t.setFromAccountId((flags & HAS_FROM) != 0 ? in.getInt() : null);
+        t.setToAccountId((flags & HAS_TO) != 0 ? in.getInt() : null);
+        if ((flags & HAS_AMOUNT) != 0) {
+            int scale = in.get();
+            byte[] unscaled = new byte[in.get() & 0xFF];
+            in.get(unscaled);
+            t.setAmount(new BigDecimal(new BigInteger(unscaled), scale));
+        } else {
+            t.setAmount(null);
+        }
+        if ((flags & HAS_CREATED_AT) != 0) {
+            t.setCreatedAt(LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC));
+        }
+        t.setDescription((flags & HAS_DESCRIPTION) != 0
+                ? new String(record, in.position(), in.remaining(), StandardCharsets.UTF_8) : null);
+    }
+}
@@ -0,0 +1,32 @@
+package model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position in the transaction history, ordered by (created_at, id) descending.
+ * A page requested "before" a cursor starts with the row just after it.
+ */
+public class TransactionCursor {
+    private final LocalDateTime createdAt;
+    private final int id;
+
+    public TransactionCursor(LocalDateTime createdAt, int id) {
+        if (createdAt == null) {
+            throw new IllegalArgumentException("Cursor timestamp is required");
+        }
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static TransactionCursor of(BankTransaction transaction) {
+        return new TransactionCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
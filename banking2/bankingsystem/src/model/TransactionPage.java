@@ -0,0 +1,28 @@
+package model;
+
+import java.util.List;
+
+public class TransactionPage {
+    private final List<BankTransaction> transactions;
+    private final TransactionCursor nextCursor;
+
+    public TransactionPage(List<BankTransaction> transactions, TransactionCursor nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BankTransaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Cursor for the next (older) page, or null if this is the last page.
+     */
+    public TransactionCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
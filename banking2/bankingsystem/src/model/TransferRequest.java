@@ -0,0 +1,33 @@
+package model;
+
+import java.math.BigDecimal;
+
+public class TransferRequest {
+    private final int fromAccountId;
+    private final int toAccountId;
+    private final BigDecimal amount;
+    private final String description;
+
+    public TransferRequest(int fromAccountId, int toAccountId, BigDecimal amount, String description) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    public int getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public int getToAccountId() {
+        return toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,33 @@
+package model;
+
+public class TransferResult {
+    private final TransferRequest request;
+    private final boolean success;
+    private final String errorMessage;
+
+    private TransferResult(TransferRequest request, boolean success, String errorMessage) {
+        this.request = request;
+        this.success = success;
+        this.errorMessage = errorMessage;
+    }
+
+    public static TransferResult succeeded(TransferRequest request) {
+        return new TransferResult(request, true, null);
+    }
+
+    public static TransferResult failed(TransferRequest request, String errorMessage) {
+        return new TransferResult(request, false, errorMessage);
+    }
+
+    public TransferRequest getRequest() {
+        return request;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
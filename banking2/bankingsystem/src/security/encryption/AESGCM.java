@@ -0,0 +1,293 @@
+package security.encryption;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java AES (FIPS-197) in Galois/Counter Mode (NIST SP 800-38D).
+ * Like {@link RSAEncryption} and the SHA-256 implementation, it does not use
+ * javax.crypto: the S-box, key schedule, block cipher and GHASH are all
+ * implemented here. An instance holds one expanded key and is thread-safe.
+ */
+public final class AESGCM {
+
+    public static final int IV_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+
+    private static final int[] SBOX = new int[256];
+    // Combined SubBytes + ShiftRows + MixColumns lookup tables ("T-tables")
+    private static final int[] T0 = new int[256];
+    private static final int[] T1 = new int[256];
+    private static final int[] T2 = new int[256];
+    private static final int[] T3 = new int[256];
+    private static final int[] RCON = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36};
+
+    static {
+        // S-box: multiplicative inverse in GF(2^8) followed by the affine transform
+        int p = 1;
+        int q = 1;
+        do {
+            // p walks the multiplicative group by 3, q by its inverse 3^-1
+            p = p ^ (p << 1) ^ ((p & 0x80) != 0 ? 0x1b : 0);
+            p &= 0xff;
+            q ^= q << 1;
+            q ^= q << 2;
+            q ^= q << 4;
+            q &= 0xff;
+            if ((q & 0x80) != 0) {
+                q ^= 0x09;
+            }
+            int x = q ^ rotl8(q, 1) ^ rotl8(q, 2) ^ rotl8(q, 3) ^ rotl8(q, 4);
+            SBOX[p] = (x ^ 0x63) & 0xff;
+        } while (p != 1);
+        SBOX[0] = 0x63;
+
+        for (int i = 0; i < 256; i++) {
+            int s = SBOX[i];
+            int s2 = xtime(s);
+            int s3 = s2 ^ s;
+            int t = (s2 << 24) | (s << 16) | (s << 8) | s3;
+            T0[i] = t;
+            T1[i] = Integer.rotateRight(t, 8);
+            T2[i] = Integer.rotateRight(t, 16);
+            T3[i] = Integer.rotateRight(t, 24);
+        }
+    }
+
+    private final int[] roundKeys;
+    private final int rounds;
+    // GHASH subkey H = E_K(0^128), as two 64-bit halves
+    private final long hHigh;
+    private final long hLow;
+
+    public AESGCM(byte[] key) {
+        if (key == null || (key.length != 16 && key.length != 24 && key.length != 32)) {
+            throw new IllegalArgumentException("AES key must be 16, 24 or 32 bytes");
+        }
+        this.rounds = key.length / 4 + 6;
+        this.roundKeys = expandKey(key, rounds);
+
+        byte[] h = new byte[16];
+        encryptBlock(h, h);
+        this.hHigh = readLong(h, 0);
+        this.hLow = readLong(h, 8);
+    }
+
+    /**
+     * Encrypt and authenticate. Returns ciphertext followed by the 16-byte tag.
+     * The IV must be 12 bytes and must never repeat for the same key.
+     */
+    public byte[] encrypt(byte[] iv, byte[] plaintext, byte[] aad) {
+        checkIv(iv);
+        byte[] out = new byte[plaintext.length + TAG_LENGTH];
+        byte[] counter = initialCounter(iv);
+        ctr(counter, plaintext, 0, plaintext.length, out);
+        byte[] tag = tag(iv, aad, out, plaintext.length);
+        System.arraycopy(tag, 0, out, plaintext.length, TAG_LENGTH);
+        return out;
+    }
+
+    /**
+     * Verify and decrypt the output of {@link #encrypt}.
+     *
+     * @throws IllegalArgumentException if the authentication tag does not match
+     */
+    public byte[] decrypt(byte[] iv, byte[] ciphertextAndTag, byte[] aad) {
+        checkIv(iv);
+        if (ciphertextAndTag.length < TAG_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext too short");
+        }
+        int length = ciphertextAndTag.length - TAG_LENGTH;
+        byte[] expected = tag(iv, aad, ciphertextAndTag, length);
+        int diff = 0;
+        for (int i = 0; i < TAG_LENGTH; i++) {
+            diff |= expected[i] ^ ciphertextAndTag[length + i];
+        }
+        if (diff != 0) {
+            throw new IllegalArgumentException("Authentication tag mismatch");
+        }
+        byte[] out = new byte[length];
+        ctr(initialCounter(iv), ciphertextAndTag, 0, length, out);
+        return out;
+    }
+
+    private static void checkIv(byte[] iv) {
+        if (iv == null || iv.length != IV_LENGTH) {
+            throw new IllegalArgumentException("IV must be " + IV_LENGTH + " bytes");
+        }
+    }
+
+    private static byte[] initialCounter(byte[] iv) {
+        byte[] counter = new byte[16];
+        System.arraycopy(iv, 0, counter, 0, IV_LENGTH);
+        counter[15] = 1; // J0; the first data block uses inc32(J0)
+        return counter;
+    }
+
+    private void ctr(byte[] counter, byte[] in, int offset, int length, byte[] out) {
+        byte[] keystream = new byte[16];
+        for (int pos = 0; pos < length; pos += 16) {
+            incrementCounter(counter);
+            encryptBlock(counter, keystream);
+            int n = Math.min(16, length - pos);
+            for (int i = 0; i < n; i++) {
+                out[pos + i] = (byte) (in[offset + pos + i] ^ keystream[i]);
+            }
+        }
+    }
+
+    private static void incrementCounter(byte[] counter) {
+        for (int i = 15; i >= 12; i--) {
+            if (++counter[i] != 0) {
+                break;
+            }
+        }
+    }
+
+    private byte[] tag(byte[] iv, byte[] aad, byte[] ciphertext, int length) {
+        long[] state = new long[2];
+        int aadLength = aad == null ? 0 : aad.length;
+        if (aadLength > 0) {
+            ghashUpdate(state, aad, aadLength);
+        }
+        ghashUpdate(state, ciphertext, length);
+        state[0] ^= (long) aadLength * 8;
+        state[1] ^= (long) length * 8;
+        gfMultiply(state);
+
+        byte[] s = new byte[16];
+        writeLong(s, 0, state[0]);
+        writeLong(s, 8, state[1]);
+        byte[] ek = new byte[16];
+        encryptBlock(initialCounter(iv), ek);
+        for (int i = 0; i < 16; i++) {
+            s[i] ^= ek[i];
+        }
+        return s;
+    }
+
+    private void ghashUpdate(long[] state, byte[] data, int length) {
+        byte[] block = new byte[16];
+        for (int pos = 0; pos < length; pos += 16) {
+            int n = Math.min(16, length - pos);
+            if (n < 16) {
+                Arrays.fill(block, (byte) 0);
+            }
+            System.arraycopy(data, pos, block, 0, n);
+            state[0] ^= readLong(block, 0);
+            state[1] ^= readLong(block, 8);
+            gfMultiply(state);
+        }
+    }
+
+    /**
+     * state = state * H in GF(2^128) with the GCM bit ordering (algorithm 1 of SP 800-38D).
+     */
+    private void gfMultiply(long[] state) {
+        long zHigh = 0;
+        long zLow = 0;
+        long vHigh = hHigh;
+        long vLow = hLow;
+        long x = state[0];
+        for (int word = 0; word < 2; word++) {
+            for (int bit = 63; bit >= 0; bit--) {
+                long mask = -((x >>> bit) & 1L);
+                zHigh ^= vHigh & mask;
+                zLow ^= vLow & mask;
+                long carry = -(vLow & 1L);
+                vLow = (vLow >>> 1) | (vHigh << 63);
+                vHigh = (vHigh >>> 1) ^ (carry & 0xe100000000000000L);
+            }
+            x = state[1];
+        }
+        state[0] = zHigh;
+        state[1] = zLow;
+    }
+
+    private void encryptBlock(byte[] in, byte[] out) {
+        int[] rk = roundKeys;
+        int s0 = readInt(in, 0) ^ rk[0];
+        int s1 = readInt(in, 4) ^ rk[1];
+        int s2 = readInt(in, 8) ^ rk[2];
+        int s3 = readInt(in, 12) ^ rk[3];
+        int k = 4;
+        for (int round = 1; round < rounds; round++) {
+            int t0 = T0[s0 >>> 24] ^ T1[(s1 >>> 16) & 0xff] ^ T2[(s2 >>> 8) & 0xff] ^ T3[s3 & 0xff] ^ rk[k];
+            int t1 = T0[s1 >>> 24] ^ T1[(s2 >>> 16) & 0xff] ^ T2[(s3 >>> 8) & 0xff] ^ T3[s0 & 0xff] ^ rk[k + 1];
+            int t2 = T0[s2 >>> 24] ^ T1[(s3 >>> 16) & 0xff] ^ T2[(s0 >>> 8) & 0xff] ^ T3[s1 & 0xff] ^ rk[k + 2];
+            int t3 = T0[s3 >>> 24] ^ T1[(s0 >>> 16) & 0xff] ^ T2[(s1 >>> 8) & 0xff] ^ T3[s2 & 0xff] ^ rk[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+            k += 4;
+        }
+        // Final round: no MixColumns
+        writeInt(out, 0, finalRoundWord(s0, s1, s2, s3) ^ rk[k]);
+        writeInt(out, 4, finalRoundWord(s1, s2, s3, s0) ^ rk[k + 1]);
+        writeInt(out, 8, finalRoundWord(s2, s3, s0, s1) ^ rk[k + 2]);
+        writeInt(out, 12, finalRoundWord(s3, s0, s1, s2) ^ rk[k + 3]);
+    }
+
+    private static int finalRoundWord(int a, int b, int c, int d) {
+        return (SBOX[a >>> 24] << 24)
+                | (SBOX[(b >>> 16) & 0xff] << 16)
+                | (SBOX[(c >>> 8) & 0xff] << 8)
+                | SBOX[d & 0xff];
+    }
+
+    private static int[] expandKey(byte[] key, int rounds) {
+        int nk = key.length / 4;
+        int[] w = new int[4 * (rounds + 1)];
+        for (int i = 0; i < nk; i++) {
+            w[i] = readInt(key, i * 4);
+        }
+        for (int i = nk; i < w.length; i++) {
+            int temp = w[i - 1];
+            if (i % nk == 0) {
+                temp = subWord(Integer.rotateLeft(temp, 8)) ^ (RCON[i / nk - 1] << 24);
+            } else if (nk > 6 && i % nk == 4) {
+                temp = subWord(temp);
+            }
+            w[i] = w[i - nk] ^ temp;
+        }
+        return w;
+    }
+
+    private static int subWord(int word) {
+        return (SBOX[word >>> 24] << 24)
+                | (SBOX[(word >>> 16) & 0xff] << 16)
+                | (SBOX[(word >>> 8) & 0xff] << 8)
+                | SBOX[word & 0xff];
+    }
+
+    private static int xtime(int b) {
+        return ((b << 1) ^ ((b & 0x80) != 0 ? 0x1b : 0)) & 0xff;
+    }
+
+    private static int rotl8(int x, int shift) {
+        return ((x << shift) | (x >>> (8 - shift))) & 0xff;
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 24)
+                | ((b[offset + 1] & 0xff) << 16)
+                | ((b[offset + 2] & 0xff) << 8)
+                | (b[offset + 3] & 0xff);
+    }
+
+    private static void writeInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+
+    private static long readLong(byte[] b, int offset) {
+        return ((long) readInt(b, offset) << 32) | (readInt(b, offset + 4) & 0xffffffffL);
+    }
+
+    private static void writeLong(byte[] b, int offset, long value) {
+        writeInt(b, offset, (int) (value >>> 32));
+        writeInt(b, offset + 4, (int) value);
+    }
+}
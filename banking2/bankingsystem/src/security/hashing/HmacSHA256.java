@@ -0,0 +1,87 @@
+package security.hashing;
+
+import java.util.Arrays;
+
+/**
+ * HMAC-SHA256 (RFC 2104) built on top of the from-scratch {@link SHA256} engine.
+ * Used to derive deterministic "blind index" values that allow equality lookups
+ * on encrypted columns without revealing the underlying value.
+ * <p>
+ * The inner and outer hashes are streamed through a per-thread engine, so the
+ * padded key and message are never copied into new arrays.
+ */
+public final class HmacSHA256 {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        final SHA256 engine = new SHA256();
+        final byte[] pad = new byte[BLOCK_SIZE];
+        final byte[] innerHash = new byte[SHA256.DIGEST_LENGTH];
+    }
+
+    private HmacSHA256() {
+    }
+
+    public static byte[] hmac(byte[] key, byte[] message) {
+        if (key == null || message == null) {
+            throw new IllegalArgumentException("Key and message must not be null");
+        }
+        Scratch scratch = SCRATCH.get();
+        startInner(scratch, key);
+        scratch.engine.update(message);
+        byte[] out = new byte[SHA256.DIGEST_LENGTH];
+        finish(scratch, out);
+        return out;
+    }
+
+    public static String hmacHex(byte[] key, String message) {
+        if (key == null || message == null) {
+            throw new IllegalArgumentException("Key and message must not be null");
+        }
+        Scratch scratch = SCRATCH.get();
+        startInner(scratch, key);
+        scratch.engine.updateUtf8(message);
+        // innerHash is free again once the outer hash has consumed it
+        finish(scratch, scratch.innerHash);
+        return SHA256Hashing.toHex(scratch.innerHash);
+    }
+
+    /**
+     * Reset the engine and feed it key XOR ipad.
+     */
+    private static void startInner(Scratch scratch, byte[] key) {
+        SHA256 engine = scratch.engine;
+        byte[] pad = scratch.pad;
+        Arrays.fill(pad, (byte) 0);
+        engine.reset();
+        if (key.length > BLOCK_SIZE) {
+            // Keys longer than the block size are hashed first
+            engine.update(key);
+            engine.digest(pad);
+        } else {
+            System.arraycopy(key, 0, pad, 0, key.length);
+        }
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pad[i] ^= 0x36;
+        }
+        engine.update(pad);
+    }
+
+    /**
+     * Complete the inner hash, then write H(key XOR opad || inner hash) to out.
+     */
+    private static void finish(Scratch scratch, byte[] out) {
+        SHA256 engine = scratch.engine;
+        byte[] pad = scratch.pad;
+        engine.digest(scratch.innerHash);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pad[i] ^= 0x36 ^ 0x5c;
+        }
+        engine.update(pad);
+        engine.update(scratch.innerHash);
+        engine.digest(out);
+    }
+}
@@ -0,0 +1,275 @@
+package security.hashing;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Incremental SHA-256 (FIPS 180-4) engine. Input is fed with the update methods
+ * and hashed block by block as it arrives; {@link #digest(byte[])} pads the last
+ * block in place, writes the hash and resets the engine for the next message.
+ * <p>
+ * All working memory (state, message schedule, one 64-byte block buffer) is
+ * allocated once with the engine, so hashing through a reused instance allocates
+ * nothing. Not thread-safe: use one instance per thread.
+ */
+public final class SHA256 {
+
+    public static final int DIGEST_LENGTH = 32;
+
+    private static final int BLOCK_SIZE = 64;
+
+    // Initial hash values (first 32 bits of the fractional parts of the square roots of the first 8 primes)
+    private static final int[] H0 = {
+            0x6a09e667,
+            0xbb67ae85,
+            0x3c6ef372,
+            0xa54ff53a,
+            0x510e527f,
+            0x9b05688c,
+            0x1f83d9ab,
+            0x5be0cd19
+    };
+
+    // Round constants (first 32 bits of the fractional parts of the cube roots of the first 64 primes)
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5,
+            0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3,
+            0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc,
+            0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7,
+            0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13,
+            0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3,
+            0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5,
+            0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208,
+            0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    private final int[] h = new int[8];
+    private final int[] w = new int[64];
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private long length; // bytes hashed since the last reset
+
+    public SHA256() {
+        reset();
+    }
+
+    /**
+     * Discard any input and start a new message.
+     */
+    public void reset() {
+        System.arraycopy(H0, 0, h, 0, H0.length);
+        blockLength = 0;
+        length = 0;
+    }
+
+    public void update(byte b) {
+        block[blockLength++] = b;
+        length++;
+        if (blockLength == BLOCK_SIZE) {
+            compress(block, 0);
+            blockLength = 0;
+        }
+    }
+
+    public void update(byte[] input) {
+        update(input, 0, input.length);
+    }
+
+    public void update(byte[] input, int offset, int len) {
+        Objects.checkFromIndexSize(offset, len, input.length);
+        length += len;
+        if (blockLength > 0) {
+            int n = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(input, offset, block, blockLength, n);
+            blockLength += n;
+            offset += n;
+            len -= n;
+            if (blockLength < BLOCK_SIZE) {
+                return;
+            }
+            compress(block, 0);
+            blockLength = 0;
+        }
+        // Whole blocks are hashed straight from the input, without copying
+        while (len >= BLOCK_SIZE) {
+            compress(input, offset);
+            offset += BLOCK_SIZE;
+            len -= BLOCK_SIZE;
+        }
+        System.arraycopy(input, offset, block, 0, len);
+        blockLength = len;
+    }
+
+    /**
+     * Hash the buffer's remaining bytes; its position ends at its limit.
+     */
+    public void update(ByteBuffer input) {
+        if (input.hasArray()) {
+            update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+            return;
+        }
+        while (input.hasRemaining()) {
+            int n = Math.min(input.remaining(), BLOCK_SIZE - blockLength);
+            input.get(block, blockLength, n);
+            blockLength += n;
+            length += n;
+            if (blockLength == BLOCK_SIZE) {
+                compress(block, 0);
+                blockLength = 0;
+            }
+        }
+    }
+
+    /**
+     * Hash the UTF-8 encoding of text, encoded on the fly (no byte[] copy).
+     * Unpaired surrogates become '?', as with String.getBytes(UTF_8).
+     */
+    public void updateUtf8(CharSequence text) {
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                update((byte) c);
+            } else if (c < 0x800) {
+                update((byte) (0xc0 | (c >> 6)));
+                update((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                update((byte) (0xf0 | (codePoint >> 18)));
+                update((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                update((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                update((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                update((byte) '?');
+            } else {
+                update((byte) (0xe0 | (c >> 12)));
+                update((byte) (0x80 | ((c >> 6) & 0x3f)));
+                update((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    public byte[] digest() {
+        byte[] out = new byte[DIGEST_LENGTH];
+        digest(out, 0);
+        return out;
+    }
+
+    public void digest(byte[] out) {
+        digest(out, 0);
+    }
+
+    /**
+     * Finish the message, write its 32-byte hash at out[offset] and reset the engine.
+     */
+    public void digest(byte[] out, int offset) {
+        Objects.checkFromIndexSize(offset, DIGEST_LENGTH, out.length);
+        long bitLength = length << 3;
+
+        // Append the '1' bit as 0x80, then zeros up to the 64-bit length
+        block[blockLength++] = (byte) 0x80;
+        if (blockLength > BLOCK_SIZE - 8) {
+            Arrays.fill(block, blockLength, BLOCK_SIZE, (byte) 0);
+            compress(block, 0);
+            blockLength = 0;
+        }
+        Arrays.fill(block, blockLength, BLOCK_SIZE - 8, (byte) 0);
+        for (int i = 0; i < 8; i++) {
+            block[BLOCK_SIZE - 1 - i] = (byte) (bitLength >>> (8 * i));
+        }
+        compress(block, 0);
+
+        // Produce the final hash value (big-endian)
+        for (int i = 0; i < 8; i++) {
+            int value = h[i];
+            out[offset + i * 4] = (byte) (value >>> 24);
+            out[offset + i * 4 + 1] = (byte) (value >>> 16);
+            out[offset + i * 4 + 2] = (byte) (value >>> 8);
+            out[offset + i * 4 + 3] = (byte) value;
+        }
+        reset();
+    }
+
+    /**
+     * Process one 512-bit chunk starting at input[offset].
+     */
+    private void compress(byte[] input, int offset) {
+        // Prepare the message schedule w[0..63]
+        for (int t = 0; t < 16; t++) {
+            int index = offset + t * 4;
+            w[t] = ((input[index] & 0xff) << 24)
+                    | ((input[index + 1] & 0xff) << 16)
+                    | ((input[index + 2] & 0xff) << 8)
+                    | (input[index + 3] & 0xff);
+        }
+        for (int t = 16; t < 64; t++) {
+            int s0 = smallSigma0(w[t - 15]);
+            int s1 = smallSigma1(w[t - 2]);
+            w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+        }
+
+        // Initialize working variables with current hash value
+        int a = h[0];
+        int b = h[1];
+        int c = h[2];
+        int d = h[3];
+        int e = h[4];
+        int f = h[5];
+        int g = h[6];
+        int hh = h[7];
+
+        // Main compression function
+        for (int t = 0; t < 64; t++) {
+            int S1 = bigSigma1(e);
+            int ch = (e & f) ^ ((~e) & g);
+            int temp1 = hh + S1 + ch + K[t] + w[t];
+            int S0 = bigSigma0(a);
+            int maj = (a & b) ^ (a & c) ^ (b & c);
+            int temp2 = S0 + maj;
+
+            hh = g;
+            g = f;
+            f = e;
+            e = d + temp1;
+            d = c;
+            c = b;
+            b = a;
+            a = temp1 + temp2;
+        }
+
+        // Add the compressed chunk to the current hash value
+        h[0] += a;
+        h[1] += b;
+        h[2] += c;
+        h[3] += d;
+        h[4] += e;
+        h[5] += f;
+        h[6] += g;
+        h[7] += hh;
+    }
+
+    private static int bigSigma0(int x) {
+        return Integer.rotateRight(x, 2) ^ Integer.rotateRight(x, 13) ^ Integer.rotateRight(x, 22);
+    }
+
+    private static int bigSigma1(int x) {
+        return Integer.rotateRight(x, 6) ^ Integer.rotateRight(x, 11) ^ Integer.rotateRight(x, 25);
+    }
+
+    private static int smallSigma0(int x) {
+        return Integer.rotateRight(x, 7) ^ Integer.rotateRight(x, 18) ^ (x >>> 3);
+    }
+
+    private static int smallSigma1(int x) {
+        return Integer.rotateRight(x, 17) ^ Integer.rotateRight(x, 19) ^ (x >>> 10);
+    }
+}
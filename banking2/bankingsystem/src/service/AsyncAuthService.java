@@ -0,0 +1,45 @@
+package service;
+
+import model.User;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade over {@link AuthService}, running on virtual threads
+ * through {@link AsyncExecutor}. PIN and password checks are CPU-only and do
+ * not take a database permit.
+ */
+public class AsyncAuthService {
+
+    private final AuthService authService;
+    private final AsyncExecutor executor;
+
+    public AsyncAuthService(AuthService authService) {
+        this(authService, AsyncExecutor.shared());
+    }
+
+    public AsyncAuthService(AuthService authService, AsyncExecutor executor) {
+        this.authService = authService;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<User> register(String username, String password, String pin, String auxiliaryUserId) {
+        return executor.database(() -> authService.register(username, password, pin, auxiliaryUserId));
+    }
+
+    public CompletableFuture<User> register(String username, String password, String pin) {
+        return executor.database(() -> authService.register(username, password, pin));
+    }
+
+    public CompletableFuture<User> login(String username, String password) {
+        return executor.database(() -> authService.login(username, password));
+    }
+
+    public CompletableFuture<Boolean> verifyPin(User user, String pin) {
+        return executor.compute(() -> authService.verifyPin(user, pin));
+    }
+
+    public CompletableFuture<Boolean> verifyPassword(User user, String password) {
+        return executor.compute(() -> authService.verifyPassword(user, password));
+    }
+}
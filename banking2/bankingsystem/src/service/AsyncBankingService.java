@@ -0,0 +1,104 @@
+package service;
+
+import model.Account;
+import model.BankTransaction;
+import model.TransactionCursor;
+import model.TransactionPage;
+import model.TransferRequest;
+import model.TransferResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade over {@link BankingService}. Every call runs on a virtual
+ * thread through {@link AsyncExecutor}; failures complete the future
+ * exceptionally with the original SQLException / IllegalArgumentException as cause.
+ */
+public class AsyncBankingService {
+
+    private final BankingService bankingService;
+    private final AsyncExecutor executor;
+
+    public AsyncBankingService(BankingService bankingService) {
+        this(bankingService, AsyncExecutor.shared());
+    }
+
+    public AsyncBankingService(BankingService bankingService, AsyncExecutor executor) {
+        this.bankingService = bankingService;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<List<Account>> getAccountsForUser(int userId) {
+        return executor.database(() -> bankingService.getAccountsForUser(userId));
+    }
+
+    public CompletableFuture<Account> createDefaultAccountForUser(int userId) {
+        return executor.database(() -> bankingService.createDefaultAccountForUser(userId));
+    }
+
+    public CompletableFuture<Account> createAccountForUserId(String auxiliaryUserId) {
+        return executor.database(() -> bankingService.createAccountForUserId(auxiliaryUserId));
+    }
+
+    public CompletableFuture<Account> createAccountForUserIdWithAuth(String auxiliaryUserId, String password, String pin) {
+        return executor.database(() -> bankingService.createAccountForUserIdWithAuth(auxiliaryUserId, password, pin));
+    }
+
+    public CompletableFuture<Void> transfer(int fromAccountId, int toAccountId, BigDecimal amount, String description) {
+        return executor.database(() -> {
+            bankingService.transfer(fromAccountId, toAccountId, amount, description);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<TransferResult>> transferBatch(List<TransferRequest> requests) {
+        return executor.database(() -> bankingService.transferBatch(requests));
+    }
+
+    public CompletableFuture<Void> deposit(int accountId, BigDecimal amount, String description) {
+        return executor.database(() -> {
+            bankingService.deposit(accountId, amount, description);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> withdraw(int accountId, BigDecimal amount, String description) {
+        return executor.database(() -> {
+            bankingService.withdraw(accountId, amount, description);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<String>> getAllAccountNumbers() {
+        return executor.database(bankingService::getAllAccountNumbers);
+    }
+
+    public CompletableFuture<List<BankTransaction>> getTransactionHistory(int accountId) {
+        return executor.database(() -> bankingService.getTransactionHistory(accountId));
+    }
+
+    public CompletableFuture<TransactionPage> getTransactionHistoryPage(int accountId, TransactionCursor before, int limit) {
+        return executor.database(() -> bankingService.getTransactionHistoryPage(accountId, before, limit));
+    }
+
+    public CompletableFuture<List<BankTransaction>> getTransactionHistory(int accountId, LocalDateTime from, LocalDateTime to) {
+        return executor.database(() -> bankingService.getTransactionHistory(accountId, from, to));
+    }
+
+    public CompletableFuture<Account> getAccountByNumber(String accountNumber) {
+        return executor.database(() -> bankingService.getAccountByNumber(accountNumber));
+    }
+
+    public CompletableFuture<Map<Integer, String>> getAccountNumbersByIds(Collection<Integer> accountIds) {
+        return executor.database(() -> bankingService.getAccountNumbersByIds(accountIds));
+    }
+
+    public CompletableFuture<Account> getAccountById(int accountId) {
+        return executor.database(() -> bankingService.getAccountById(accountId));
+    }
+}
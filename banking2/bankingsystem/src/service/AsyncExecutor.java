@@ -0,0 +1,85 @@
+package service;
+
+import db.DatabaseConfig;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking service calls on virtual threads (one per task) while bounding
+ * how many of them may use the database at once. Waiting for a permit parks a
+ * virtual thread, not a platform thread, so thousands of concurrent requests
+ * cost little more than their stacks.
+ */
+public final class AsyncExecutor implements AutoCloseable {
+
+    private static volatile AsyncExecutor shared;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore databasePermits;
+
+    public AsyncExecutor(int maxConcurrentDatabaseCalls) {
+        this.databasePermits = new Semaphore(maxConcurrentDatabaseCalls, true);
+    }
+
+    /**
+     * Executor for the main DataSource: its limit is the connection pool size,
+     * so callers queue here rather than on the pool's borrow timeout.
+     */
+    public static AsyncExecutor shared() {
+        if (shared == null) {
+            synchronized (AsyncExecutor.class) {
+                if (shared == null) {
+                    shared = new AsyncExecutor(DatabaseConfig.POOL_MAX_SIZE);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Run work that needs a database connection.
+     */
+    public <T> CompletableFuture<T> database(RetryPolicy.SqlWork<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                databasePermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                databasePermits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Run CPU-only work (hashing, verification) that does not touch the database.
+     */
+    public <T> CompletableFuture<T> compute(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    public int getAvailableDatabasePermits() {
+        return databasePermits.availablePermits();
+    }
+
+    public int getQueuedDatabaseCalls() {
+        return databasePermits.getQueueLength();
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -4,26 +4,53 @@ import dao.AccountDao;
 import dao.TransactionDao;
 import dao.UserDao;
 import db.DataSourceManager;
+import metrics.LatencyHistogram;
 import model.Account;
 import model.BankTransaction;
+import model.TransactionCursor;
+import model.TransactionPage;
+import model.TransferRequest;
+import model.TransferResult;
 import model.User;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 public class BankingService {
 
     private final AccountDao accountDao = new AccountDao();
     private final TransactionDao transactionDao = new TransactionDao();
+    private final RetryPolicy retryPolicy;
+
+    // Time between taking the first row lock and commit/rollback, across all instances
+    private static final LatencyHistogram LOCK_HOLD_TIME = new LatencyHistogram();
 
     // Limites de sécurité
     private static final int MAX_DESCRIPTION_LENGTH = 200;
     private static final BigDecimal MAX_TRANSACTION_AMOUNT = new BigDecimal("1000000.00");
     private static final BigDecimal MIN_TRANSACTION_AMOUNT = new BigDecimal("0.01");
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+
+    public BankingService() {
+        this(RetryPolicy.DEFAULT);
+    }
+
+    public BankingService(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
 
     public List<Account> getAccountsForUser(int userId) throws SQLException {
         return accountDao.findByUserId(userId);
@@ -79,20 +106,38 @@ public class BankingService {
 
     /**
      * Transfer money between two accounts in a single DB transaction with row-level locking.
+     * Both rows are locked in one ordered statement; deadlocks and lock wait timeouts are retried.
      */
     public void transfer(int fromAccountId, int toAccountId, BigDecimal amount, String description) throws SQLException {
         // Validate amount
         validateAmount(amount);
+        if (fromAccountId == toAccountId) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
 
         // Sanitize and limit description
         description = sanitizeDescription(description);
 
+        // Encrypt the ledger row before any lock is taken
+        TransactionDao.PreparedTransaction ledgerRow =
+                transactionDao.prepareTransaction(fromAccountId, toAccountId, amount, description);
+
+        retryPolicy.execute(() -> {
+            executeTransfer(fromAccountId, toAccountId, amount, ledgerRow);
+            return null;
+        });
+    }
+
+    private void executeTransfer(int fromAccountId, int toAccountId, BigDecimal amount,
+                                 TransactionDao.PreparedTransaction ledgerRow) throws SQLException {
         DataSource dataSource = DataSourceManager.getDataSource();
         try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
+            long lockStart = System.nanoTime();
             try {
-                Account from = accountDao.findByIdForUpdate(fromAccountId, conn);
-                Account to = accountDao.findByIdForUpdate(toAccountId, conn);
+                Map<Integer, Account> locked = accountDao.findByIdsForUpdate(List.of(fromAccountId, toAccountId), conn);
+                Account from = locked.get(fromAccountId);
+                Account to = locked.get(toAccountId);
 
                 if (from == null || to == null) {
                     throw new IllegalArgumentException("Invalid account ID");
@@ -108,7 +153,7 @@ public class BankingService {
                 accountDao.updateBalance(from.getId(), newFromBalance, conn);
                 accountDao.updateBalance(to.getId(), newToBalance, conn);
 
-                transactionDao.createTransaction(from.getId(), to.getId(), amount, description, conn);
+                transactionDao.insertTransaction(ledgerRow, conn);
 
                 conn.commit();
             } catch (Exception ex) {
@@ -118,6 +163,163 @@ public class BankingService {
                 }
                 throw new SQLException("Transfer failed: " + ex.getMessage(), ex);
             } finally {
+                LOCK_HOLD_TIME.record(System.nanoTime() - lockStart);
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * A validated, pre-encrypted balance movement. A null source is a deposit,
+     * a null destination a withdrawal.
+     */
+    static final class LedgerOperation {
+        final Integer fromAccountId;
+        final Integer toAccountId;
+        final BigDecimal amount;
+        final TransactionDao.PreparedTransaction ledgerRow;
+
+        LedgerOperation(Integer fromAccountId, Integer toAccountId, BigDecimal amount,
+                        TransactionDao.PreparedTransaction ledgerRow) {
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.amount = amount;
+            this.ledgerRow = ledgerRow;
+        }
+    }
+
+    /**
+     * Validate and encrypt a transfer without touching the database.
+     */
+    LedgerOperation prepareTransferOperation(int fromAccountId, int toAccountId, BigDecimal amount, String description) throws SQLException {
+        validateAmount(amount);
+        if (fromAccountId == toAccountId) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        description = sanitizeDescription(description);
+        return new LedgerOperation(fromAccountId, toAccountId, amount,
+                transactionDao.prepareTransaction(fromAccountId, toAccountId, amount, description));
+    }
+
+    LedgerOperation prepareDepositOperation(int accountId, BigDecimal amount, String description) throws SQLException {
+        validateAmount(amount);
+        description = sanitizeDescription(description);
+        return new LedgerOperation(null, accountId, amount,
+                transactionDao.prepareTransaction(null, accountId, amount, description != null ? description : "Deposit"));
+    }
+
+    LedgerOperation prepareWithdrawOperation(int accountId, BigDecimal amount, String description) throws SQLException {
+        validateAmount(amount);
+        description = sanitizeDescription(description);
+        return new LedgerOperation(accountId, null, amount,
+                transactionDao.prepareTransaction(accountId, null, amount, description != null ? description : "Withdrawal"));
+    }
+
+    /**
+     * Execute many transfers (payroll, merchant settlement) in one DB transaction.
+     * All involved accounts are locked with a single ordered statement, items are
+     * validated in memory against running balances, and balances and ledger rows
+     * are written with batched statements before one commit. An item that fails
+     * validation is reported in its result and does not affect the others.
+     */
+    public List<TransferResult> transferBatch(List<TransferRequest> requests) throws SQLException {
+        TransferResult[] results = new TransferResult[requests.size()];
+        List<Integer> pending = new ArrayList<>();
+        List<LedgerOperation> operations = new ArrayList<>();
+
+        // Validate and encrypt everything before any lock is taken
+        for (int i = 0; i < requests.size(); i++) {
+            TransferRequest request = requests.get(i);
+            try {
+                operations.add(prepareTransferOperation(request.getFromAccountId(), request.getToAccountId(),
+                        request.getAmount(), request.getDescription()));
+                pending.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = TransferResult.failed(request, e.getMessage());
+            }
+        }
+
+        if (!operations.isEmpty()) {
+            String[] errors = executeLedgerOperations(operations);
+            for (int k = 0; k < pending.size(); k++) {
+                int i = pending.get(k);
+                results[i] = errors[k] == null
+                        ? TransferResult.succeeded(requests.get(i))
+                        : TransferResult.failed(requests.get(i), errors[k]);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Apply prepared operations in one DB transaction, retrying on deadlock.
+     * Returns one entry per operation: null when applied, otherwise the reason it was skipped.
+     */
+    String[] executeLedgerOperations(List<LedgerOperation> operations) throws SQLException {
+        return retryPolicy.execute(() -> applyLedgerOperations(operations));
+    }
+
+    private String[] applyLedgerOperations(List<LedgerOperation> operations) throws SQLException {
+        String[] errors = new String[operations.size()];
+        Set<Integer> accountIds = new TreeSet<>();
+        for (LedgerOperation op : operations) {
+            if (op.fromAccountId != null) {
+                accountIds.add(op.fromAccountId);
+            }
+            if (op.toAccountId != null) {
+                accountIds.add(op.toAccountId);
+            }
+        }
+
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            long lockStart = System.nanoTime();
+            try {
+                Map<Integer, Account> locked = accountDao.findByIdsForUpdate(accountIds, conn);
+                Map<Integer, BigDecimal> balances = new HashMap<>();
+                for (Account account : locked.values()) {
+                    balances.put(account.getId(), account.getBalance());
+                }
+
+                Map<Integer, BigDecimal> newBalances = new LinkedHashMap<>();
+                List<TransactionDao.PreparedTransaction> rowsToInsert = new ArrayList<>();
+                for (int i = 0; i < operations.size(); i++) {
+                    LedgerOperation op = operations.get(i);
+                    BigDecimal fromBalance = op.fromAccountId != null ? balances.get(op.fromAccountId) : null;
+                    BigDecimal toBalance = op.toAccountId != null ? balances.get(op.toAccountId) : null;
+                    if ((op.fromAccountId != null && fromBalance == null) || (op.toAccountId != null && toBalance == null)) {
+                        errors[i] = op.fromAccountId != null && op.toAccountId != null ? "Invalid account ID" : "Account not found";
+                        continue;
+                    }
+                    if (fromBalance != null && fromBalance.compareTo(op.amount) < 0) {
+                        errors[i] = "Insufficient funds";
+                        continue;
+                    }
+                    if (fromBalance != null) {
+                        balances.put(op.fromAccountId, fromBalance.subtract(op.amount));
+                        newBalances.put(op.fromAccountId, balances.get(op.fromAccountId));
+                    }
+                    if (toBalance != null) {
+                        balances.put(op.toAccountId, toBalance.add(op.amount));
+                        newBalances.put(op.toAccountId, balances.get(op.toAccountId));
+                    }
+                    rowsToInsert.add(op.ledgerRow);
+                }
+
+                accountDao.updateBalances(newBalances, conn);
+                transactionDao.insertTransactions(rowsToInsert, conn);
+
+                conn.commit();
+                return errors;
+            } catch (Exception ex) {
+                conn.rollback();
+                if (ex instanceof SQLException) {
+                    throw (SQLException) ex;
+                }
+                throw new SQLException("Batch failed: " + ex.getMessage(), ex);
+            } finally {
+                LOCK_HOLD_TIME.record(System.nanoTime() - lockStart);
                 conn.setAutoCommit(true);
             }
         }
@@ -133,9 +335,22 @@ public class BankingService {
         // Sanitize and limit description
         description = sanitizeDescription(description);
 
+        // Encrypt the ledger row before any lock is taken (deposit: from_account_id is null)
+        TransactionDao.PreparedTransaction ledgerRow = transactionDao.prepareTransaction(null, accountId, amount,
+                description != null ? description : "Deposit");
+
+        retryPolicy.execute(() -> {
+            executeDeposit(accountId, amount, ledgerRow);
+            return null;
+        });
+    }
+
+    private void executeDeposit(int accountId, BigDecimal amount,
+                                TransactionDao.PreparedTransaction ledgerRow) throws SQLException {
         DataSource dataSource = DataSourceManager.getDataSource();
         try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
+            long lockStart = System.nanoTime();
             try {
                 Account account = accountDao.findByIdForUpdate(accountId, conn);
 
@@ -146,9 +361,7 @@ public class BankingService {
                 BigDecimal newBalance = account.getBalance().add(amount);
                 accountDao.updateBalance(accountId, newBalance, conn);
 
-                // Create transaction record (deposit: from_account_id is null)
-                transactionDao.createTransaction(null, accountId, amount,
-                        description != null ? description : "Deposit", conn);
+                transactionDao.insertTransaction(ledgerRow, conn);
 
                 conn.commit();
             } catch (Exception ex) {
@@ -158,6 +371,7 @@ public class BankingService {
                 }
                 throw new SQLException("Deposit failed: " + ex.getMessage(), ex);
             } finally {
+                LOCK_HOLD_TIME.record(System.nanoTime() - lockStart);
                 conn.setAutoCommit(true);
             }
         }
@@ -173,9 +387,22 @@ public class BankingService {
         // Sanitize and limit description
         description = sanitizeDescription(description);
 
+        // Encrypt the ledger row before any lock is taken (withdrawal: to_account_id is null)
+        TransactionDao.PreparedTransaction ledgerRow = transactionDao.prepareTransaction(accountId, null, amount,
+                description != null ? description : "Withdrawal");
+
+        retryPolicy.execute(() -> {
+            executeWithdraw(accountId, amount, ledgerRow);
+            return null;
+        });
+    }
+
+    private void executeWithdraw(int accountId, BigDecimal amount,
+                                 TransactionDao.PreparedTransaction ledgerRow) throws SQLException {
         DataSource dataSource = DataSourceManager.getDataSource();
         try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
+            long lockStart = System.nanoTime();
             try {
                 Account account = accountDao.findByIdForUpdate(accountId, conn);
 
@@ -190,9 +417,7 @@ public class BankingService {
                 BigDecimal newBalance = account.getBalance().subtract(amount);
                 accountDao.updateBalance(accountId, newBalance, conn);
 
-                // Create transaction record (withdrawal: to_account_id is null)
-                transactionDao.createTransaction(accountId, null, amount,
-                        description != null ? description : "Withdrawal", conn);
+                transactionDao.insertTransaction(ledgerRow, conn);
 
                 conn.commit();
             } catch (Exception ex) {
@@ -202,11 +427,57 @@ public class BankingService {
                 }
                 throw new SQLException("Withdrawal failed: " + ex.getMessage(), ex);
             } finally {
+                LOCK_HOLD_TIME.record(System.nanoTime() - lockStart);
                 conn.setAutoCommit(true);
             }
         }
     }
 
+    /**
+     * Distribution of row-lock hold times for deposits, withdrawals and transfers.
+     */
+    public static LatencyHistogram getLockHoldTimeStats() {
+        return LOCK_HOLD_TIME;
+    }
+
+    /**
+     * Deadlock / lock-wait-timeout retry counters for this service's policy.
+     */
+    public RetryPolicy.Stats getRetryStats() {
+        return retryPolicy.getStats();
+    }
+
+    /**
+     * Rotate the transaction key: new rows use a fresh RSA key at once and existing
+     * rows are re-encrypted by a throttled background job, tuned with the
+     * banking.rotation.* system properties. Closing the job stops it; its checkpoint
+     * lets {@link #resumeKeyRotation()} continue later.
+     */
+    public KeyRotationJob rotateTransactionKey() throws SQLException {
+        int keyId = RSAKeyRing.getInstance().rotate();
+        return startKeyRotation(keyId);
+    }
+
+    /**
+     * Continue re-encrypting rows not yet under the current key, e.g. after a restart.
+     * Returns null when no key was ever rotated.
+     */
+    public KeyRotationJob resumeKeyRotation() throws SQLException {
+        RSAKeyRing keyRing = RSAKeyRing.getInstance();
+        int keyId = keyRing.currentKeyId();
+        if (keyId == keyRing.systemKeyId()) {
+            return null;
+        }
+        return startKeyRotation(keyId);
+    }
+
+    private KeyRotationJob startKeyRotation(int keyId) {
+        return new KeyRotationJob(transactionDao, retryPolicy, keyId,
+                Integer.getInteger("banking.rotation.batchSize", 200),
+                Integer.getInteger("banking.rotation.maxRowsPerSecond", 500),
+                Long.getLong("banking.rotation.maxBatchWriteMs", 50));
+    }
+
     /**
      * Get all account numbers in the database.
      */
@@ -221,6 +492,28 @@ public class BankingService {
         return transactionDao.findByAccountId(accountId);
     }
 
+    /**
+     * One page of an account's history, newest first.
+     *
+     * @param before {@link TransactionPage#getNextCursor()} of the previous page, or null for the first page
+     */
+    public TransactionPage getTransactionHistoryPage(int accountId, TransactionCursor before, int limit) throws SQLException {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        return transactionDao.findPageByAccountId(accountId, before, limit);
+    }
+
+    /**
+     * An account's transactions with from <= created_at < to, newest first.
+     */
+    public List<BankTransaction> getTransactionHistory(int accountId, LocalDateTime from, LocalDateTime to) throws SQLException {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Invalid date range");
+        }
+        return transactionDao.findByAccountIdBetween(accountId, from, to);
+    }
+
     /**
      * Get account by account number.
      */
@@ -228,6 +521,13 @@ public class BankingService {
         return accountDao.findByAccountNumber(accountNumber);
     }
 
+    /**
+     * Account numbers for a set of account ids, resolved in bulk (see {@link AccountDao#getAccountNumbersByIds}).
+     */
+    public Map<Integer, String> getAccountNumbersByIds(Collection<Integer> accountIds) throws SQLException {
+        return accountDao.getAccountNumbersByIds(accountIds);
+    }
+
     /**
      * Get account by ID.
      */
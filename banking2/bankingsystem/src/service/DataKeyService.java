@@ -0,0 +1,152 @@
+package service;
+
+import security.encryption.AESGCM;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Envelope encryption for transaction rows.
+ * <p>
+ * A random AES-256 data key encrypts the row fields with AES-GCM; the data key
+ * itself is wrapped once with the current RSA key through {@link RSAKeyService}.
+ * The same data key is reused for a bounded batch of rows, so writing a row
+ * costs a few symmetric operations instead of one RSA exponentiation per field,
+ * and reads only pay an RSA decryption the first time a wrapped key is seen.
+ */
+public class DataKeyService {
+
+    private static final int DATA_KEY_BYTES = 32;
+    private static final int MAX_ROWS_PER_DATA_KEY = 1000;
+    private static final long MAX_DATA_KEY_AGE_MS = 60_000;
+    private static final int MAX_UNWRAPPED_KEYS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * A data key ready for use: the AES cipher plus its RSA-wrapped form stored with each row.
+     */
+    public static final class DataKey {
+        private final AESGCM cipher;
+        private final byte[] wrappedKey;
+        private final int keyId;
+        private final long createdAt;
+        private int rowsEncrypted;
+
+        DataKey(AESGCM cipher, byte[] wrappedKey, int keyId) {
+            this.cipher = cipher;
+            this.wrappedKey = wrappedKey;
+            this.keyId = keyId;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public byte[] getWrappedKey() {
+            return wrappedKey.clone();
+        }
+
+        /**
+         * Id of the RSA key (rsa_keys.id) the data key is wrapped with.
+         */
+        public int getKeyId() {
+            return keyId;
+        }
+
+        /**
+         * Encrypt one field into IV || ciphertext || tag. The column name is bound as
+         * associated data so a ciphertext cannot be moved to another column undetected.
+         */
+        public byte[] encryptField(String plaintext, String column) {
+            if (plaintext == null || plaintext.isEmpty()) {
+                return null;
+            }
+            byte[] iv = new byte[AESGCM.IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            byte[] sealed = cipher.encrypt(iv, plaintext.getBytes(StandardCharsets.UTF_8), column.getBytes(StandardCharsets.UTF_8));
+            byte[] out = new byte[iv.length + sealed.length];
+            System.arraycopy(iv, 0, out, 0, iv.length);
+            System.arraycopy(sealed, 0, out, iv.length, sealed.length);
+            return out;
+        }
+
+        public String decryptField(byte[] in, String column) throws SQLException {
+            if (in == null || in.length == 0) {
+                return null;
+            }
+            try {
+                if (in.length < AESGCM.IV_LENGTH + AESGCM.TAG_LENGTH) {
+                    throw new SQLException("Envelope ciphertext too short");
+                }
+                byte[] iv = new byte[AESGCM.IV_LENGTH];
+                byte[] sealed = new byte[in.length - AESGCM.IV_LENGTH];
+                System.arraycopy(in, 0, iv, 0, iv.length);
+                System.arraycopy(in, iv.length, sealed, 0, sealed.length);
+                byte[] plain = cipher.decrypt(iv, sealed, column.getBytes(StandardCharsets.UTF_8));
+                return new String(plain, StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new SQLException("Failed to decrypt envelope field '" + column + "': " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private final RSAKeyService rsaKeyService;
+    private DataKey currentKey;
+
+    // Recently unwrapped data keys, so each wrapped key costs one RSA decryption
+    // (ByteBuffer keys compare by content)
+    private final Map<ByteBuffer, DataKey> unwrappedKeys = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, DataKey> eldest) {
+            return size() > MAX_UNWRAPPED_KEYS;
+        }
+    };
+
+    public DataKeyService(RSAKeyService rsaKeyService) {
+        this.rsaKeyService = rsaKeyService;
+    }
+
+    /**
+     * Data key for the next row to write. A fresh key is generated and wrapped
+     * after {@value #MAX_ROWS_PER_DATA_KEY} rows or {@value #MAX_DATA_KEY_AGE_MS} ms,
+     * or as soon as a newer RSA key becomes current.
+     */
+    public synchronized DataKey currentKey() throws SQLException {
+        long now = System.currentTimeMillis();
+        int keyId = rsaKeyService.currentKeyId();
+        if (currentKey == null
+                || currentKey.keyId != keyId
+                || currentKey.rowsEncrypted >= MAX_ROWS_PER_DATA_KEY
+                || now - currentKey.createdAt > MAX_DATA_KEY_AGE_MS) {
+            byte[] raw = new byte[DATA_KEY_BYTES];
+            RANDOM.nextBytes(raw);
+            currentKey = new DataKey(new AESGCM(raw), rsaKeyService.wrapKey(raw, keyId), keyId);
+            unwrappedKeys.put(ByteBuffer.wrap(currentKey.wrappedKey), currentKey);
+        }
+        currentKey.rowsEncrypted++;
+        return currentKey;
+    }
+
+    /**
+     * Data key for reading a row, unwrapping it with RSA key keyId only on first sight.
+     */
+    public DataKey keyFor(byte[] wrappedKey, int keyId) throws SQLException {
+        if (wrappedKey == null || wrappedKey.length == 0) {
+            throw new SQLException("Envelope-encrypted row has no data key");
+        }
+        ByteBuffer cacheKey = ByteBuffer.wrap(wrappedKey);
+        synchronized (this) {
+            DataKey key = unwrappedKeys.get(cacheKey);
+            if (key != null) {
+                return key;
+            }
+        }
+        DataKey key = new DataKey(new AESGCM(rsaKeyService.unwrapKey(wrappedKey, keyId)), wrappedKey, keyId);
+        synchronized (this) {
+            unwrappedKeys.put(cacheKey, key);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,171 @@
+package service;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional group-commit front end for {@link BankingService}.
+ * <p>
+ * Concurrent deposits, withdrawals and transfers are queued and applied together:
+ * the committer thread waits up to {@code maxDelayMillis} after the first request
+ * (or until {@code maxBatchSize} requests are queued), then applies the whole group
+ * in a single DB transaction, so N operations share one redo-log flush. Each
+ * caller gets its own future; an operation that fails validation (unknown
+ * account, insufficient funds) fails only its own future.
+ * <p>
+ * Validation and encryption happen on the caller's thread at submit time, so the
+ * committer thread only does the locked database work.
+ */
+public class GroupCommitExecutor implements AutoCloseable {
+
+    private static final class Pending {
+        final BankingService.LedgerOperation operation;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(BankingService.LedgerOperation operation) {
+            this.operation = operation;
+        }
+    }
+
+    private final BankingService bankingService;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+
+    public GroupCommitExecutor(BankingService bankingService, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.bankingService = bankingService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.committer = new Thread(this::run, "group-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    public CompletableFuture<Void> deposit(int accountId, BigDecimal amount, String description) {
+        return submit(() -> bankingService.prepareDepositOperation(accountId, amount, description));
+    }
+
+    public CompletableFuture<Void> withdraw(int accountId, BigDecimal amount, String description) {
+        return submit(() -> bankingService.prepareWithdrawOperation(accountId, amount, description));
+    }
+
+    public CompletableFuture<Void> transfer(int fromAccountId, int toAccountId, BigDecimal amount, String description) {
+        return submit(() -> bankingService.prepareTransferOperation(fromAccountId, toAccountId, amount, description));
+    }
+
+    /**
+     * Average number of operations committed per DB transaction.
+     */
+    public double getAverageGroupSize() {
+        long g = groups.sum();
+        return g == 0 ? 0.0 : operations.sum() / (double) g;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        committer.interrupt();
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IllegalStateException("Group commit executor closed"));
+        }
+    }
+
+    private CompletableFuture<Void> submit(RetryPolicy.SqlWork<BankingService.LedgerOperation> prepare) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Group commit executor closed"));
+        }
+        try {
+            Pending pending = new Pending(prepare.run());
+            queue.add(pending);
+            // close() may have joined the committer and drained the queue while this
+            // operation was being prepared: whoever removes it from the queue completes it
+            if (!running && queue.remove(pending)) {
+                pending.future.completeExceptionally(new IllegalStateException("Group commit executor closed"));
+            }
+            return pending.future;
+        } catch (SQLException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                while (group.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                }
+                queue.drainTo(group, maxBatchSize - group.size());
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        List<BankingService.LedgerOperation> ops = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            ops.add(pending.operation);
+        }
+        try {
+            String[] errors = bankingService.executeLedgerOperations(ops);
+            groups.increment();
+            operations.add(group.size());
+            for (int i = 0; i < group.size(); i++) {
+                if (errors[i] == null) {
+                    group.get(i).future.complete(null);
+                } else {
+                    group.get(i).future.completeExceptionally(new IllegalArgumentException(errors[i]));
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).future.completeExceptionally(e);
+                return;
+            }
+            // Something in the group broke the shared transaction: fall back to one
+            // transaction per operation so only the offending operation fails
+            for (Pending pending : group) {
+                commit(List.of(pending));
+            }
+        }
+    }
+}
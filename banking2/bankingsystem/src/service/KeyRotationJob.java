@@ -0,0 +1,288 @@
+package service;
+
+import dao.TransactionDao;
+import db.DataSourceManager;
+import metrics.LatencyHistogram;
+import model.BankTransaction;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background re-encryption of existing ledger rows under a new RSA key.
+ * <p>
+ * The job walks transactions by primary key (keyset, never OFFSET) up to the
+ * highest id that existed when it started; later rows are already written with
+ * the new key. Each batch is decrypted and re-encrypted outside any DB
+ * transaction, then written with one batched UPDATE plus the checkpoint in a
+ * short transaction. Only old rows are locked, which transfers never touch.
+ * <p>
+ * Load is bounded two ways: a rows/sec rate limit, and a batch size that halves
+ * whenever a write takes longer than {@code maxBatchWriteMillis} and grows back
+ * slowly otherwise. The checkpoint (key_rotation_checkpoints) lets a restarted
+ * job resume where the previous one stopped.
+ */
+public class KeyRotationJob implements AutoCloseable {
+
+    private static final int MIN_BATCH_SIZE = 10;
+
+    private final TransactionDao transactionDao;
+    private final RetryPolicy retryPolicy;
+    private final int targetKeyId;
+    private final int maxBatchSize;
+    private final int maxRowsPerSecond;
+    private final long maxBatchWriteMillis;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // Progress and throughput
+    private final LongAdder rowsReencrypted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LatencyHistogram batchWriteTime = new LatencyHistogram();
+    private volatile int lastId;
+    private volatile int maxId;
+    private volatile int batchSize;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile boolean completed;
+    private volatile Throwable failure;
+
+    /**
+     * Start re-encrypting, in a daemon thread, every row not yet under targetKeyId.
+     */
+    public KeyRotationJob(TransactionDao transactionDao, RetryPolicy retryPolicy, int targetKeyId,
+                          int maxBatchSize, int maxRowsPerSecond, long maxBatchWriteMillis) {
+        if (maxBatchSize < MIN_BATCH_SIZE) {
+            throw new IllegalArgumentException("maxBatchSize must be at least " + MIN_BATCH_SIZE);
+        }
+        if (maxRowsPerSecond < 1) {
+            throw new IllegalArgumentException("maxRowsPerSecond must be at least 1");
+        }
+        this.transactionDao = transactionDao;
+        this.retryPolicy = retryPolicy;
+        this.targetKeyId = targetKeyId;
+        this.maxBatchSize = maxBatchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.maxBatchWriteMillis = maxBatchWriteMillis;
+        this.batchSize = maxBatchSize;
+        this.worker = new Thread(this::run, "key-rotation-" + targetKeyId);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public int getTargetKeyId() {
+        return targetKeyId;
+    }
+
+    public long getRowsReencrypted() {
+        return rowsReencrypted.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Time spent writing each batch (UPDATE + checkpoint + commit).
+     */
+    public LatencyHistogram getBatchWriteTime() {
+        return batchWriteTime;
+    }
+
+    /**
+     * Fraction of the id range walked so far, between 0 and 1.
+     */
+    public double getProgress() {
+        if (completed) {
+            return 1.0;
+        }
+        int max = maxId;
+        return max == 0 ? 0.0 : Math.min(1.0, lastId / (double) max);
+    }
+
+    /**
+     * Rows re-encrypted per second since this job started.
+     */
+    public double getRowsPerSecond() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0.0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        double seconds = (end - start) / 1e9;
+        return seconds <= 0 ? 0.0 : rowsReencrypted.sum() / seconds;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * The error that stopped the job, or null.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Wait for the job to finish. Returns false on timeout.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        worker.join(unit.toMillis(timeout));
+        return !worker.isAlive();
+    }
+
+    /**
+     * Stop after the current batch. The checkpoint keeps the progress made so far.
+     */
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("key=%d progress=%.1f%% rows=%d batches=%d batchSize=%d rate=%.0f rows/s write[%s]%s",
+                targetKeyId, getProgress() * 100, getRowsReencrypted(), getBatches(), batchSize,
+                getRowsPerSecond(), batchWriteTime, completed ? " completed" : "");
+    }
+
+    private void run() {
+        startNanos = System.nanoTime();
+        try {
+            if (readCheckpoint()) {
+                completed = true;
+                return;
+            }
+            maxId = transactionDao.findMaxId();
+            while (running) {
+                List<BankTransaction> rows = transactionDao.findNotEncryptedWithKey(targetKeyId, lastId, maxId, batchSize);
+                if (rows.isEmpty()) {
+                    writeCheckpoint(null, lastId, true);
+                    completed = true;
+                    System.out.println("✓ Key rotation: " + this);
+                    break;
+                }
+
+                // Chiffrement hors transaction : aucun verrou pendant le travail RSA/AES
+                Map<Integer, TransactionDao.PreparedTransaction> prepared = new LinkedHashMap<>();
+                for (BankTransaction t : rows) {
+                    prepared.put(t.getId(), transactionDao.prepareTransaction(
+                            t.getFromAccountId(), t.getToAccountId(), t.getAmount(), t.getDescription()));
+                }
+                int batchLastId = rows.get(rows.size() - 1).getId();
+
+                long writeStart = System.nanoTime();
+                retryPolicy.execute(() -> {
+                    writeCheckpoint(prepared, batchLastId, false);
+                    return null;
+                });
+                long writeNanos = System.nanoTime() - writeStart;
+                batchWriteTime.record(writeNanos);
+
+                lastId = batchLastId;
+                rowsReencrypted.add(rows.size());
+                batches.increment();
+                adjustBatchSize(writeNanos);
+                throttle();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | RuntimeException e) {
+            failure = e;
+            System.err.println("Key rotation to key " + targetKeyId + " stopped: " + e.getMessage());
+        } finally {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Load the checkpoint of a previous run. Returns true if that run already finished.
+     */
+    private boolean readCheckpoint() throws SQLException {
+        String sql = "SELECT last_id, completed_at FROM key_rotation_checkpoints WHERE target_key_id = ?";
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, targetKeyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                lastId = rs.getInt("last_id");
+                return rs.getTimestamp("completed_at") != null;
+            }
+        }
+    }
+
+    /**
+     * Write a batch of re-encrypted rows (if any) and advance the checkpoint, atomically.
+     */
+    private void writeCheckpoint(Map<Integer, TransactionDao.PreparedTransaction> prepared, int checkpointId,
+                                 boolean done) throws SQLException {
+        String sql = """
+                INSERT INTO key_rotation_checkpoints (target_key_id, last_id, rows_reencrypted, completed_at)
+                VALUES (?, ?, ?, IF(?, CURRENT_TIMESTAMP, NULL))
+                ON DUPLICATE KEY UPDATE last_id = VALUES(last_id),
+                                        rows_reencrypted = rows_reencrypted + VALUES(rows_reencrypted),
+                                        completed_at = VALUES(completed_at)
+                """;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (prepared != null) {
+                    transactionDao.updateEncryption(prepared, conn);
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, targetKeyId);
+                    ps.setInt(2, checkpointId);
+                    ps.setInt(3, prepared != null ? prepared.size() : 0);
+                    ps.setBoolean(4, done);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void adjustBatchSize(long writeNanos) {
+        long writeMillis = TimeUnit.NANOSECONDS.toMillis(writeNanos);
+        if (writeMillis > maxBatchWriteMillis) {
+            // Writes are slowing down: the database is busy, back off
+            batchSize = Math.max(MIN_BATCH_SIZE, batchSize / 2);
+        } else if (batchSize < maxBatchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 4));
+        }
+    }
+
+    /**
+     * Sleep until the rows done so far fit within maxRowsPerSecond.
+     */
+    private void throttle() throws InterruptedException {
+        long dueNanos = startNanos + rowsReencrypted.sum() * 1_000_000_000L / maxRowsPerSecond;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
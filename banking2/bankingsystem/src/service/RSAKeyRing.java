@@ -0,0 +1,336 @@
+package service;
+
+import db.DataSourceManager;
+import security.encryption.RSAEncryption;
+import security.hashing.SHA256Hashing;
+
+import javax.sql.DataSource;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide ring of the RSA keys stored in rsa_keys.
+ * <p>
+ * All keys are loaded once into an immutable snapshot published through a volatile
+ * field, so lookups by key id are a plain array access with no locking and no
+ * allocation. Loading (and generating the first key) runs once, on a background
+ * thread: {@link #warmUp()} starts it at application startup, and the first
+ * caller that needs a key only awaits that same future, so no request pays for
+ * prime generation on its own and concurrent first use cannot create two system keys.
+ */
+public final class RSAKeyRing {
+
+    static final String SYSTEM_KEY_NAME = "SYSTEM_TRANSACTION_KEY";
+
+    /**
+     * Key id of rows written before transactions.key_id existed; they use the system key.
+     */
+    public static final int LEGACY_KEY_ID = 0;
+
+    /**
+     * Size of newly generated keys, set with the banking.rsa.keySize system property.
+     */
+    public static final int KEY_SIZE = Integer.getInteger("banking.rsa.keySize", 2048);
+
+    private static final RSAKeyRing INSTANCE = new RSAKeyRing();
+
+    // Loading and prime searches; virtual threads never keep the JVM alive
+    private static final ExecutorService KEY_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final class Snapshot {
+        final RSAEncryption.KeyPair[] keysById;
+        final int systemKeyId;
+        final int currentKeyId;
+        // Derived from the system key, so blind indexes stay stable across rotations
+        final byte[] blindIndexKey;
+
+        Snapshot(RSAEncryption.KeyPair[] keysById, int systemKeyId, int currentKeyId, byte[] blindIndexKey) {
+            this.keysById = keysById;
+            this.systemKeyId = systemKeyId;
+            this.currentKeyId = currentKeyId;
+            this.blindIndexKey = blindIndexKey;
+        }
+    }
+
+    private volatile Snapshot snapshot;
+    private CompletableFuture<Snapshot> loading; // guarded by this
+    private final List<Runnable> keyChangeListeners = new CopyOnWriteArrayList<>();
+
+    private RSAKeyRing() {
+    }
+
+    public static RSAKeyRing getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start loading the keys (generating the system key on first boot) in the
+     * background. Calling it again, or after loading, just returns the same future.
+     */
+    public CompletableFuture<Void> warmUp() {
+        return startLoading().thenApply(s -> null);
+    }
+
+    /**
+     * Key pair by rsa_keys.id ({@link #LEGACY_KEY_ID} resolves to the system key).
+     * An unknown id triggers one reload, in case another instance added the key.
+     */
+    public RSAEncryption.KeyPair get(int keyId) throws SQLException {
+        Snapshot s = snapshot();
+        RSAEncryption.KeyPair keyPair = lookup(s, keyId);
+        if (keyPair == null) {
+            keyPair = lookup(reload(s), keyId);
+            if (keyPair == null) {
+                throw new SQLException("Unknown RSA key id: " + keyId);
+            }
+        }
+        return keyPair;
+    }
+
+    /**
+     * Id of the key new rows are encrypted with: the newest key in rsa_keys.
+     */
+    public int currentKeyId() throws SQLException {
+        return snapshot().currentKeyId;
+    }
+
+    /**
+     * Id of the first key ever created, from which blind indexes derive.
+     */
+    public int systemKeyId() throws SQLException {
+        return snapshot().systemKeyId;
+    }
+
+    public RSAEncryption.KeyPair systemKey() throws SQLException {
+        Snapshot s = snapshot();
+        return s.keysById[s.systemKeyId];
+    }
+
+    byte[] blindIndexKey() throws SQLException {
+        return snapshot().blindIndexKey;
+    }
+
+    /**
+     * Generate a new key pair, store it and make it the current key for new rows.
+     * Existing rows keep their key_id and stay readable; blind indexes keep deriving
+     * from the system key. Prime generation happens before any lock is taken.
+     *
+     * @return the id of the new key
+     */
+    public int rotate() throws SQLException {
+        RSAEncryption.KeyPair keyPair = RSAEncryption.generateKeyPair(KEY_SIZE, KEY_EXECUTOR);
+        int keyId;
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            keyId = insertKey(conn, "TRANSACTION_KEY_" + UUID.randomUUID(), keyPair);
+        }
+        refresh();
+        System.out.println("✓ RSA key rotated, new transactions use key " + keyId);
+        return keyId;
+    }
+
+    /**
+     * Run listener every time the keys are reloaded (rotation, or a key added by
+     * another instance), e.g. to drop caches derived from them.
+     */
+    public void addKeyChangeListener(Runnable listener) {
+        keyChangeListeners.add(listener);
+    }
+
+    /**
+     * Re-read rsa_keys, e.g. after a key was added.
+     */
+    public void refresh() throws SQLException {
+        reload(snapshot);
+    }
+
+    private static RSAEncryption.KeyPair lookup(Snapshot s, int keyId) {
+        if (keyId == LEGACY_KEY_ID) {
+            return s.keysById[s.systemKeyId];
+        }
+        return keyId > 0 && keyId < s.keysById.length ? s.keysById[keyId] : null;
+    }
+
+    private Snapshot snapshot() throws SQLException {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+        try {
+            return startLoading().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized CompletableFuture<Snapshot> startLoading() {
+        if (snapshot != null) {
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        // A failed attempt (e.g. database not reachable yet) is retried by the next caller
+        if (loading == null || loading.isCompletedExceptionally()) {
+            loading = CompletableFuture.supplyAsync(() -> {
+                try {
+                    Snapshot loaded = load();
+                    publish(loaded);
+                    return loaded;
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, KEY_EXECUTOR);
+        }
+        return loading;
+    }
+
+    private synchronized void publish(Snapshot loaded) {
+        if (snapshot == null) {
+            snapshot = loaded;
+        }
+    }
+
+    private synchronized Snapshot reload(Snapshot seen) throws SQLException {
+        // Another thread already reloaded since the caller looked
+        if (snapshot != null && snapshot != seen) {
+            return snapshot;
+        }
+        snapshot = load();
+        keyChangeListeners.forEach(Runnable::run);
+        return snapshot;
+    }
+
+    private Snapshot load() throws SQLException {
+        DataSource dataSource = DataSourceManager.getDataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            Snapshot s = readKeys(conn);
+            if (s != null) {
+                return s;
+            }
+            createSystemKey(conn);
+            s = readKeys(conn);
+            if (s == null) {
+                throw new SQLException("RSA system key missing after creation");
+            }
+            return s;
+        }
+    }
+
+    private Snapshot readKeys(Connection conn) throws SQLException {
+        String selectSql = """
+                SELECT id, key_name, public_key_modulus, public_key_exponent, private_key_exponent,
+                       prime_p, prime_q, prime_exponent_p, prime_exponent_q, crt_coefficient
+                FROM rsa_keys ORDER BY id
+                """;
+        TreeMap<Integer, RSAEncryption.KeyPair> keys = new TreeMap<>();
+        int systemKeyId = -1;
+        try (PreparedStatement ps = conn.prepareStatement(selectSql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                BigInteger modulus = new BigInteger(rs.getString("public_key_modulus"));
+                BigInteger publicExp = new BigInteger(rs.getString("public_key_exponent"));
+                BigInteger privateExp = new BigInteger(rs.getString("private_key_exponent"));
+                String primeP = rs.getString("prime_p");
+                RSAEncryption.KeyPair keyPair;
+                if (primeP != null) {
+                    keyPair = new RSAEncryption.KeyPair(modulus, publicExp, privateExp,
+                            new BigInteger(primeP),
+                            new BigInteger(rs.getString("prime_q")),
+                            new BigInteger(rs.getString("prime_exponent_p")),
+                            new BigInteger(rs.getString("prime_exponent_q")),
+                            new BigInteger(rs.getString("crt_coefficient")));
+                } else {
+                    // Key stored before CRT parameters were kept: recover and persist them once
+                    keyPair = RSAEncryption.recoverCrtParameters(new RSAEncryption.KeyPair(modulus, publicExp, privateExp));
+                    storeCrtParameters(conn, id, rs.getString("key_name"), keyPair);
+                }
+                keys.put(id, keyPair);
+                if (SYSTEM_KEY_NAME.equals(rs.getString("key_name"))) {
+                    systemKeyId = id;
+                }
+            }
+        }
+        if (systemKeyId < 0) {
+            return null;
+        }
+
+        int maxId = keys.lastKey();
+        RSAEncryption.KeyPair[] keysById = new RSAEncryption.KeyPair[maxId + 1];
+        keys.forEach((id, keyPair) -> keysById[id] = keyPair);
+        String keyMaterial = SHA256Hashing.hash("BLIND_INDEX:" + keysById[systemKeyId].privateExponent);
+        return new Snapshot(keysById, systemKeyId, maxId, keyMaterial.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void createSystemKey(Connection conn) throws SQLException {
+        System.out.println("Generating RSA-" + KEY_SIZE + " key pair for transaction encryption in the background...");
+
+        RSAEncryption.KeyPair keyPair = RSAEncryption.generateKeyPair(KEY_SIZE, KEY_EXECUTOR);
+        try {
+            insertKey(conn, SYSTEM_KEY_NAME, keyPair);
+            System.out.println("RSA key pair generated and stored successfully.");
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Another application instance stored its key first: use that one
+            System.out.println("RSA system key created concurrently by another instance, reusing it.");
+        }
+    }
+
+    static int insertKey(Connection conn, String keyName, RSAEncryption.KeyPair keyPair) throws SQLException {
+        String insertSql = """
+                INSERT INTO rsa_keys (key_name, public_key_modulus, public_key_exponent, private_key_exponent,
+                                      prime_p, prime_q, prime_exponent_p, prime_exponent_q, crt_coefficient)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, keyName);
+            ps.setString(2, keyPair.modulus.toString());
+            ps.setString(3, keyPair.publicExponent.toString());
+            ps.setString(4, keyPair.privateExponent.toString());
+            ps.setString(5, keyPair.primeP.toString());
+            ps.setString(6, keyPair.primeQ.toString());
+            ps.setString(7, keyPair.primeExponentP.toString());
+            ps.setString(8, keyPair.primeExponentQ.toString());
+            ps.setString(9, keyPair.crtCoefficient.toString());
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("Creating RSA key '" + keyName + "' failed, no id obtained");
+    }
+
+    private void storeCrtParameters(Connection conn, int keyId, String keyName, RSAEncryption.KeyPair keyPair) throws SQLException {
+        String updateSql = """
+                UPDATE rsa_keys
+                SET prime_p = ?, prime_q = ?, prime_exponent_p = ?, prime_exponent_q = ?, crt_coefficient = ?
+                WHERE id = ?
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+            ps.setString(1, keyPair.primeP.toString());
+            ps.setString(2, keyPair.primeQ.toString());
+            ps.setString(3, keyPair.primeExponentP.toString());
+            ps.setString(4, keyPair.primeExponentQ.toString());
+            ps.setString(5, keyPair.crtCoefficient.toString());
+            ps.setInt(6, keyId);
+            ps.executeUpdate();
+        }
+        System.out.println("✓ Migration: Stored CRT parameters for RSA key '" + keyName + "'");
+    }
+}
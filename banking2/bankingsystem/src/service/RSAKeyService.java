@@ -1,84 +1,113 @@
 package service;
 
-import db.DataSourceManager;
+import cache.LruCache;
 import security.encryption.RSAEncryption;
+import security.hashing.HmacSHA256;
 
-import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 public class RSAKeyService {
 
-    private static final String SYSTEM_KEY_NAME = "SYSTEM_TRANSACTION_KEY";
     private static final int MAX_TEXT_BYTES = 200; // Limite de sécurité pour le texte
 
-    // Cache pour éviter de recharger la clé à chaque fois
-    private RSAEncryption.KeyPair cachedKeyPair = null;
+    /**
+     * Entries per memo cache (banking.rsa.cacheSize); 0 disables them.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger("banking.rsa.cacheSize", 10_000);
 
     /**
-     * Get or create the system RSA key pair for transaction encryption.
+     * Key of both memo caches: an RSA key id plus a plaintext (String) or a ciphertext (ByteBuffer).
      */
-    public RSAEncryption.KeyPair getOrCreateSystemKeyPair() throws SQLException {
-        // Utiliser le cache si disponible
-        if (cachedKeyPair != null) {
-            return cachedKeyPair;
-        }
-
-        DataSource dataSource = DataSourceManager.getDataSource();
-        try (Connection conn = dataSource.getConnection()) {
-            // Try to retrieve existing key
-            String selectSql = "SELECT public_key_modulus, public_key_exponent, private_key_exponent FROM rsa_keys WHERE key_name = ?";
-            try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
-                ps.setString(1, SYSTEM_KEY_NAME);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        BigInteger modulus = new BigInteger(rs.getString("public_key_modulus"));
-                        BigInteger publicExp = new BigInteger(rs.getString("public_key_exponent"));
-                        BigInteger privateExp = new BigInteger(rs.getString("private_key_exponent"));
-                        // CORRECTION: Utiliser le constructeur avec 3 paramètres seulement
-                        cachedKeyPair = new RSAEncryption.KeyPair(modulus, publicExp, privateExp);
-                        return cachedKeyPair;
-                    }
-                }
-            }
+    private static final class CacheKey {
+        final int keyId;
+        final Object value;
 
-            // Create new key pair if not found
-            System.out.println("Generating RSA-2048 key pair for transaction encryption...");
-            System.out.println("This may take a few seconds on first startup...");
+        CacheKey(int keyId, Object value) {
+            this.keyId = keyId;
+            this.value = value;
+        }
 
-            RSAEncryption.KeyPair keyPair = RSAEncryption.generateKeyPair(2048);
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CacheKey other && keyId == other.keyId && value.equals(other.value);
+        }
 
-            String insertSql = "INSERT INTO rsa_keys (key_name, public_key_modulus, public_key_exponent, private_key_exponent) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
-                ps.setString(1, SYSTEM_KEY_NAME);
-                ps.setString(2, keyPair.modulus.toString());
-                ps.setString(3, keyPair.publicExponent.toString());
-                ps.setString(4, keyPair.privateExponent.toString());
-                ps.executeUpdate();
-            }
+        @Override
+        public int hashCode() {
+            return 31 * keyId + value.hashCode();
+        }
+    }
 
-            System.out.println("RSA key pair generated and stored successfully.");
-            cachedKeyPair = keyPair;
-            return keyPair;
+    // Unpadded RSA is deterministic, so the same account ids, amounts and default
+    // descriptions always give the same blocks: memoize both directions, process-wide
+    private static final LruCache<CacheKey, byte[]> ENCRYPT_CACHE = CACHE_SIZE > 0 ? new LruCache<>(CACHE_SIZE) : null;
+    private static final LruCache<CacheKey, String> DECRYPT_CACHE = CACHE_SIZE > 0 ? new LruCache<>(CACHE_SIZE) : null;
+
+    static {
+        if (CACHE_SIZE > 0) {
+            RSAKeyRing.getInstance().addKeyChangeListener(() -> {
+                ENCRYPT_CACHE.clear();
+                DECRYPT_CACHE.clear();
+            });
         }
     }
 
+    // Clés partagées par tout le processus, chargées une seule fois
+    private final RSAKeyRing keyRing = RSAKeyRing.getInstance();
+
     /**
-     * Encrypt a string value using RSA.
+     * Hit/miss counters of the plaintext -> ciphertext memo cache (null when disabled).
+     */
+    public static LruCache.Stats getEncryptCacheStats() {
+        return ENCRYPT_CACHE != null ? ENCRYPT_CACHE.getStats() : null;
+    }
+
+    /**
+     * Hit/miss counters of the ciphertext -> plaintext memo cache (null when disabled).
+     */
+    public static LruCache.Stats getDecryptCacheStats() {
+        return DECRYPT_CACHE != null ? DECRYPT_CACHE.getStats() : null;
+    }
+
+    /**
+     * The system RSA key pair: the first key ever created, from which blind indexes derive.
+     */
+    public RSAEncryption.KeyPair getOrCreateSystemKeyPair() throws SQLException {
+        return keyRing.systemKey();
+    }
+
+    /**
+     * Id (rsa_keys.id) of the key new ciphertexts must be produced with.
+     */
+    public int currentKeyId() throws SQLException {
+        return keyRing.currentKeyId();
+    }
+
+    /**
+     * Encrypt a string value using RSA with the given key.
+     * The ciphertext is the raw big-endian block, always as long as the modulus.
+     * Results are memoized: the returned array may be shared and must not be modified.
      * IMPORTANT: Limited to MAX_TEXT_BYTES bytes to avoid exceeding RSA modulus size.
      */
-    public String encrypt(String plaintext) throws SQLException {
+    public byte[] encrypt(String plaintext, int keyId) throws SQLException {
         if (plaintext == null || plaintext.isEmpty()) {
             return null;
         }
+        CacheKey cacheKey = null;
+        if (ENCRYPT_CACHE != null) {
+            cacheKey = new CacheKey(keyId, plaintext);
+            byte[] cached = ENCRYPT_CACHE.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
         // Vérifier la taille AVANT de chiffrer
         byte[] plaintextBytes = plaintext.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        RSAEncryption.KeyPair keyPair = getOrCreateSystemKeyPair();
+        RSAEncryption.KeyPair keyPair = keyRing.get(keyId);
 
         // RSA-2048 peut chiffrer environ (2048/8) - 11 = 245 bytes max (avec PKCS#1 padding)
         // On limite à 200 bytes pour être sûr
@@ -93,7 +122,7 @@ public class RSAKeyService {
             );
         }
 
-        BigInteger plaintextNumber = RSAEncryption.textToNumber(plaintext);
+        BigInteger plaintextNumber = new BigInteger(1, plaintextBytes);
 
         // Vérifier que le nombre est inférieur au modulus
         if (plaintextNumber.compareTo(keyPair.modulus) >= 0) {
@@ -103,39 +132,130 @@ public class RSAKeyService {
             );
         }
 
-        BigInteger encrypted = RSAEncryption.encrypt(plaintextNumber, keyPair.publicExponent, keyPair.modulus);
-        return encrypted.toString();
+        byte[] ciphertext = toBlock(RSAEncryption.encrypt(plaintextNumber, keyPair.publicExponent, keyPair.modulus), keyPair);
+        if (cacheKey != null) {
+            ENCRYPT_CACHE.put(cacheKey, ciphertext);
+        }
+        return ciphertext;
     }
 
     /**
-     * Decrypt a string value using RSA.
+     * Decrypt a string value using RSA with the key it was encrypted with (memoized).
      */
-    public String decrypt(String ciphertext) throws SQLException {
-        if (ciphertext == null || ciphertext.isEmpty()) {
+    public String decrypt(byte[] ciphertext, int keyId) throws SQLException {
+        if (ciphertext == null || ciphertext.length == 0) {
             return null;
         }
+        CacheKey cacheKey = null;
+        if (DECRYPT_CACHE != null) {
+            cacheKey = new CacheKey(keyId, ByteBuffer.wrap(ciphertext));
+            String cached = DECRYPT_CACHE.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        RSAEncryption.KeyPair keyPair = keyRing.get(keyId);
+        BigInteger decrypted = RSAEncryption.decrypt(fromBlock(ciphertext, keyPair), keyPair);
+        String plaintext = RSAEncryption.numberToText(decrypted);
+        if (cacheKey != null) {
+            DECRYPT_CACHE.put(cacheKey, plaintext);
+        }
+        return plaintext;
+    }
 
-        try {
-            RSAEncryption.KeyPair keyPair = getOrCreateSystemKeyPair();
-            BigInteger ciphertextNumber = new BigInteger(ciphertext);
+    /**
+     * Largest plaintext, in bytes, that fits in one block of the given key.
+     */
+    public int maxPlaintextBytes(int keyId) throws SQLException {
+        return keyRing.get(keyId).modulus.bitLength() / 8 - 11;
+    }
 
-            // Vérifier que le ciphertext est dans la plage valide
-            if (ciphertextNumber.compareTo(keyPair.modulus) >= 0) {
-                throw new IllegalArgumentException("Ciphertext too large for modulus");
-            }
+    /**
+     * Encrypt raw bytes as a single RSA block. The first byte must not be zero,
+     * since leading zero bytes do not survive the BigInteger round trip.
+     */
+    public byte[] encryptBytes(byte[] plaintext, int keyId) throws SQLException {
+        if (plaintext.length == 0 || plaintext[0] == 0) {
+            throw new IllegalArgumentException("Plaintext must start with a non-zero byte");
+        }
+        RSAEncryption.KeyPair keyPair = keyRing.get(keyId);
+        if (plaintext.length > maxPlaintextBytes(keyId)) {
+            throw new IllegalArgumentException(
+                    String.format("Record too long for one RSA block. Max %d bytes, got %d bytes",
+                            maxPlaintextBytes(keyId), plaintext.length));
+        }
+        return toBlock(RSAEncryption.encrypt(new BigInteger(1, plaintext), keyPair.publicExponent, keyPair.modulus), keyPair);
+    }
 
-            BigInteger decrypted = RSAEncryption.decrypt(ciphertextNumber, keyPair.privateExponent, keyPair.modulus);
-            return RSAEncryption.numberToText(decrypted);
-        } catch (NumberFormatException e) {
-            throw new SQLException("Invalid ciphertext format: " + e.getMessage(), e);
+    /**
+     * Decrypt a block produced by {@link #encryptBytes(byte[], int)}.
+     */
+    public byte[] decryptBytes(byte[] ciphertext, int keyId) throws SQLException {
+        RSAEncryption.KeyPair keyPair = keyRing.get(keyId);
+        byte[] plaintext = RSAEncryption.decrypt(fromBlock(ciphertext, keyPair), keyPair).toByteArray();
+        // The first plaintext byte is non-zero, so toByteArray never adds a sign byte here
+        if (plaintext[0] == 0) {
+            throw new SQLException("Invalid RSA block");
+        }
+        return plaintext;
+    }
+
+    /**
+     * Wrap a symmetric data key with an RSA key (envelope encryption).
+     * A 0x01 marker byte is prepended so leading zero bytes of the key survive
+     * the BigInteger round trip.
+     */
+    public byte[] wrapKey(byte[] dataKey, int keyId) throws SQLException {
+        byte[] marked = new byte[dataKey.length + 1];
+        marked[0] = 0x01;
+        System.arraycopy(dataKey, 0, marked, 1, dataKey.length);
+        return encryptBytes(marked, keyId);
+    }
+
+    /**
+     * Unwrap a data key produced by {@link #wrapKey(byte[], int)}.
+     */
+    public byte[] unwrapKey(byte[] wrappedKey, int keyId) throws SQLException {
+        byte[] marked = decryptBytes(wrappedKey, keyId);
+        if (marked.length < 2 || marked[0] != 0x01) {
+            throw new SQLException("Invalid wrapped data key");
+        }
+        byte[] dataKey = new byte[marked.length - 1];
+        System.arraycopy(marked, 1, dataKey, 0, dataKey.length);
+        return dataKey;
+    }
+
+    private static byte[] toBlock(BigInteger ciphertext, RSAEncryption.KeyPair keyPair) {
+        return RSAEncryption.toFixedBytes(ciphertext, RSAEncryption.blockLength(keyPair.modulus));
+    }
+
+    private static BigInteger fromBlock(byte[] ciphertext, RSAEncryption.KeyPair keyPair) throws SQLException {
+        BigInteger ciphertextNumber = new BigInteger(1, ciphertext);
+        // Vérifier que le ciphertext est dans la plage valide
+        if (ciphertextNumber.compareTo(keyPair.modulus) >= 0) {
+            throw new SQLException("Ciphertext too large for modulus");
+        }
+        return ciphertextNumber;
+    }
+
+    /**
+     * Compute the blind index of an account ID: a keyed hash (HMAC-SHA256) that
+     * lets the database match encrypted rows by account without decrypting them.
+     * The HMAC key is derived from the system private exponent, so it never leaves
+     * the application and stays stable even when newer keys are added.
+     */
+    public String blindIndex(Integer accountId) throws SQLException {
+        if (accountId == null) {
+            return null;
         }
+        return HmacSHA256.hmacHex(keyRing.blindIndexKey(), "ACCOUNT:" + accountId);
     }
 
     /**
      * Encrypt a BigDecimal amount by converting to string first.
      * LIMIT: Amounts must be reasonable size (< 200 characters)
      */
-    public String encryptAmount(BigDecimal amount) throws SQLException {
+    public byte[] encryptAmount(BigDecimal amount, int keyId) throws SQLException {
         if (amount == null) {
             return null;
         }
@@ -149,22 +269,22 @@ public class RSAKeyService {
             );
         }
 
-        return encrypt(amountStr);
+        return encrypt(amountStr, keyId);
     }
 
     /**
-     * Decrypt an amount string back to BigDecimal.
+     * Decrypt an amount back to BigDecimal.
      */
-    public BigDecimal decryptAmount(String encryptedAmount) throws SQLException {
-        if (encryptedAmount == null || encryptedAmount.isEmpty()) {
+    public BigDecimal decryptAmount(byte[] encryptedAmount, int keyId) throws SQLException {
+        if (encryptedAmount == null || encryptedAmount.length == 0) {
             return null;
         }
 
         try {
-            String decrypted = decrypt(encryptedAmount);
+            String decrypted = decrypt(encryptedAmount, keyId);
             return new BigDecimal(decrypted);
         } catch (NumberFormatException e) {
             throw new SQLException("Decrypted amount is not a valid number: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
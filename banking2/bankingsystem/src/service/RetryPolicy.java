@@ -0,0 +1,130 @@
+package service;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retries a unit of database work when MySQL aborts it because of a deadlock
+ * or a lock wait timeout, waiting a jittered exponential backoff between attempts.
+ * Any other failure is rethrown immediately.
+ */
+public class RetryPolicy {
+
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final String SQLSTATE_SERIALIZATION_FAILURE = "40001";
+
+    /**
+     * Default policy, configurable with the banking.retry.* system properties.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(
+            Integer.getInteger("banking.retry.maxAttempts", 5),
+            Long.getLong("banking.retry.baseDelayMs", 10),
+            Long.getLong("banking.retry.maxDelayMs", 500));
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Retry counters, exposed as metrics.
+     */
+    public static final class Stats {
+        public final long executions;
+        public final long deadlockRetries;
+        public final long lockTimeoutRetries;
+        public final long exhausted;
+
+        Stats(long executions, long deadlockRetries, long lockTimeoutRetries, long exhausted) {
+            this.executions = executions;
+            this.deadlockRetries = deadlockRetries;
+            this.lockTimeoutRetries = lockTimeoutRetries;
+            this.exhausted = exhausted;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("executions=%d deadlockRetries=%d lockTimeoutRetries=%d exhausted=%d",
+                    executions, deadlockRetries, lockTimeoutRetries, exhausted);
+        }
+    }
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder deadlockRetries = new LongAdder();
+    private final LongAdder lockTimeoutRetries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        executions.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                SQLException cause = retryableCause(e);
+                if (cause == null) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                if (cause.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                    lockTimeoutRetries.increment();
+                } else {
+                    deadlockRetries.increment();
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(executions.sum(), deadlockRetries.sum(), lockTimeoutRetries.sum(), exhausted.sum());
+    }
+
+    /**
+     * Find the deadlock / lock-wait-timeout error in the cause chain, if any.
+     */
+    static SQLException retryableCause(Throwable t) {
+        while (t != null) {
+            if (t instanceof SQLException sql) {
+                if (sql instanceof SQLTransactionRollbackException
+                        || SQLSTATE_SERIALIZATION_FAILURE.equals(sql.getSQLState())
+                        || sql.getErrorCode() == ER_LOCK_DEADLOCK
+                        || sql.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                    return sql;
+                }
+            }
+            t = t.getCause();
+        }
+        return null;
+    }
+
+    private void backoff(int attempt) throws SQLException {
+        // "Full jitter": uniform in [0, min(max, base * 2^attempt)]
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying", e);
+        }
+    }
+}